@@ -0,0 +1,85 @@
+package com.lukian.userapi.admission;
+
+import java.time.Duration;
+
+/**
+ * Limit of concurrently processed requests which adapts to their latency (AIMD):
+ * every request slower than the latency threshold, or failed on the server side,
+ * cuts the limit by {@value #BACKOFF_RATIO}, and every fast one raises it by
+ * {@code 1 / limit} (about 1 per limit requests) while at least half of the limit is in use.
+ * <p>
+ * So when DB slows down, fewer requests are let in to wait for its connections,
+ * and the limit grows back once they are served in time again.
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.9;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    Duration latencyThreshold) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Creates a limit which stays the same whatever the latency of the requests,
+     * for requests released with {@link #release()}.
+     *
+     * @param limit concurrent requests allowed
+     * @return fixed limit
+     */
+    public static AdaptiveConcurrencyLimit fixed(int limit) {
+        return new AdaptiveConcurrencyLimit(limit, limit, limit, Duration.ZERO);
+    }
+
+    /**
+     * Lets a request in unless the limit is reached;
+     * every admitted request must be released.
+     *
+     * @return whether the request is admitted
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a processed request and adapts the limit to its outcome.
+     *
+     * @param latencyNanos how long the request took
+     * @param failed whether the request failed on the server side
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        inFlight--;
+    }
+
+    /**
+     * Releases a request without adapting the limit, e.g. a streamed response,
+     * whose duration depends on its size rather than on the load.
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,230 @@
+package com.lukian.userapi.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.util.RequestUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Rejects requests before they reach the DB pool when the client sends too many
+ * of them (429) or when the birth date search, lookups, writes or bulk writes are
+ * saturated (503), both with {@code Retry-After}, so a slow DB makes the service shed load
+ * instead of piling up threads waiting for connections.
+ * <p>
+ * When clients are rate limited, every request takes a token of its client's
+ * {@link TokenBucketRateLimiter} bucket; clients are told apart by {@link RequestUtil#getClient}.
+ * Searches, lookups, writes and bulk writes are limited by the {@link AdaptiveConcurrencyLimit}
+ * of their {@link Group}. Outcomes are counted in {@value #REQUESTS_METRIC}, tagged with
+ * {@code group} and {@code outcome}.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    public static final String REQUESTS_METRIC = "user.admission.requests";
+    public static final String LIMIT_METRIC = "user.admission.limit";
+    public static final String IN_FLIGHT_METRIC = "user.admission.in-flight";
+    private static final String USERS_PATH = "/api/users";
+    private static final String SEARCH_PATH = "/api/users/search";
+    private static final String BIRTHDAYS_PATH = "/api/users/birthdays";
+    private static final Pattern USER_PATH = Pattern.compile("/api/users/\\d+");
+    private static final String IDS_PARAMETER = "ids";
+    private static final String LOOKUP_PATH = "/api/users/lookup";
+    private static final String BATCH_PATH = "/api/users/batch";
+    private static final String IMPORTS_PATH = "/api/users/imports";
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(),
+            HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+    private final TokenBucketRateLimiter rateLimiter;
+    private final Map<Group, AdaptiveConcurrencyLimit> limits;
+    private final Duration retryAfter;
+    private final ObjectMapper objectMapper;
+    private final Map<Group, Map<Outcome, Counter>> counters = new EnumMap<>(Group.class);
+
+    /**
+     * @param rateLimiter buckets of the clients, or null when clients are not rate limited
+     */
+    public AdmissionControlFilter(TokenBucketRateLimiter rateLimiter,
+                                  Map<Group, AdaptiveConcurrencyLimit> limits,
+                                  Duration retryAfter, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.limits = limits;
+        this.retryAfter = retryAfter;
+        this.objectMapper = objectMapper;
+        for (Group group : Group.values()) {
+            Map<Outcome, Counter> groupCounters = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                groupCounters.put(outcome, Counter.builder(REQUESTS_METRIC)
+                        .description("Requests admitted or rejected by admission control")
+                        .tag("group", group.getTag())
+                        .tag("outcome", outcome.getTag())
+                        .register(meterRegistry));
+            }
+            counters.put(group, groupCounters);
+        }
+        limits.forEach((group, limit) -> {
+            Gauge.builder(LIMIT_METRIC, limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current concurrency limit")
+                    .tag("group", group.getTag())
+                    .register(meterRegistry);
+            Gauge.builder(IN_FLIGHT_METRIC, limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests being processed within the concurrency limit")
+                    .tag("group", group.getTag())
+                    .register(meterRegistry);
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = Group.of(request);
+        long waitNanos = rateLimiter != null
+                ? rateLimiter.tryAcquire(RequestUtil.getClient(request)) : 0;
+        if (waitNanos > 0) {
+            counters.get(group).get(Outcome.RATE_LIMITED).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(waitNanos),
+                    "Too many requests, retry later");
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(group);
+        if (limit == null) {
+            counters.get(group).get(Outcome.ADMITTED).increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limit.tryAcquire()) {
+            counters.get(group).get(Outcome.SHED).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfter,
+                    "Service is overloaded, retry later");
+            return;
+        }
+        counters.get(group).get(Outcome.ADMITTED).increment();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limit));
+            } else if (group.isAdaptive()) {
+                limit.release(System.nanoTime() - start, failed);
+            } else {
+                limit.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, Duration retryAfter,
+                        String error) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status);
+        body.put("errors", error);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(retryAfter)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private long toSeconds(Duration duration) {
+        long seconds = duration.getSeconds() + (duration.getNano() > 0 ? 1 : 0);
+        return Math.max(1, seconds);
+    }
+
+    /**
+     * Requests limited together; searches are the {@code GET /api/users/search} variants
+     * (list, page and stream), lookups are the reads of users by id ({@code GET /api/users/{id}},
+     * {@code GET /api/users?ids=} and {@code POST /api/users/lookup}) and the upcoming
+     * birthdays, which are what id-probing scanners hit, bulk writes are batch registrations
+     * and imports, and writes are any other method. Other reads (statistics, import jobs,
+     * registration statuses) are not limited.
+     * <p>
+     * The latency of bulk writes depends on their size rather than on the load, so it is
+     * not fed to their limit, which stays fixed; neither does it lower the limit of writes.
+     */
+    @Getter
+    public enum Group {
+        SEARCH(true),
+        LOOKUP(true),
+        WRITE(true),
+        BULK(false),
+        OTHER(false);
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+        private final boolean adaptive;
+
+        Group(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        static Group of(HttpServletRequest request) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            if (READ_METHODS.contains(request.getMethod())) {
+                if (SEARCH_PATH.equals(path)) {
+                    return SEARCH;
+                }
+                boolean lookup = USER_PATH.matcher(path).matches() || BIRTHDAYS_PATH.equals(path)
+                        || USERS_PATH.equals(path) && request.getParameter(IDS_PARAMETER) != null;
+                return lookup ? LOOKUP : OTHER;
+            }
+            if (BATCH_PATH.equals(path) || path.startsWith(IMPORTS_PATH)) {
+                return BULK;
+            }
+            return LOOKUP_PATH.equals(path) ? LOOKUP : WRITE;
+        }
+    }
+
+    @Getter
+    public enum Outcome {
+        ADMITTED,
+        RATE_LIMITED,
+        SHED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Releases the limit once a streamed response completes, including after a timeout
+     * or an error, which are followed by completion.
+     */
+    private record ReleasingAsyncListener(AdaptiveConcurrencyLimit limit)
+            implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.lukian.userapi.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit of every client: a bucket of {@code burst} tokens refilled with
+ * {@code requestsPerSecond} tokens per second, one token taken by every request.
+ * <p>
+ * Buckets of up to {@code maxClients} clients are kept in memory; a bucket is dropped
+ * once it has been idle long enough to be full again, as a new one is the same.
+ */
+public class TokenBucketRateLimiter {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final double tokensPerNano;
+    private final double burst;
+    private final Ticker ticker;
+    private final Cache<String, Bucket> buckets;
+
+    public TokenBucketRateLimiter(double requestsPerSecond, int burst, long maxClients,
+                                  Ticker ticker) {
+        this.tokensPerNano = requestsPerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess((long) Math.ceil(burst / tokensPerNano), TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @param client client id
+     * @return 0 if the request is admitted, otherwise nanoseconds until the next token
+     */
+    public long tryAcquire(String client) {
+        long now = ticker.read();
+        Bucket bucket = buckets.get(client, key -> new Bucket(burst, now));
+        synchronized (bucket) {
+            bucket.tokens = Math.min(burst,
+                    bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+            bucket.refilledAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+        }
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.lukian.userapi.cache;
+
+import static com.lukian.userapi.util.TransactionUtil.runAfterCommit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lukian.userapi.dto.UserResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded local cache of active users keyed by id.
+ * <p>
+ * Entries are evicted by size and time to live. Only users found through the
+ * soft-delete filtered repository are cached, and every soft delete evicts the user,
+ * so a deleted user is never served from the cache. Hits, misses and evictions
+ * are published as {@code cache.*} metrics with {@code cache=users} tag.
+ */
+@Component
+public class UserCache {
+    private static final String CACHE_NAME = "users";
+    private final Cache<Long, UserResponseDto> cache;
+
+    public UserCache(@Value("${user.cache.maximum-size}") long maximumSize,
+                     @Value("${user.cache.time-to-live}") Duration timeToLive,
+                     MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached user or loads it with the given loader.
+     *
+     * Concurrent loads of the same id are coalesced into one.
+     * Missing users ({@code null} from the loader) are not cached.
+     *
+     * @param id user id
+     * @param loader function which reads the user from DB
+     * @return user or {@code null} if it does not exist
+     */
+    public UserResponseDto get(Long id, Function<Long, UserResponseDto> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * Returns the cached users and loads all the others with one call of the given loader.
+     *
+     * Users missing from the loader result are not cached and not returned.
+     *
+     * @param ids user ids
+     * @param loader function which reads the users missing from the cache from DB
+     * @return users by id
+     */
+    public Map<Long, UserResponseDto> getAll(Collection<Long> ids,
+                                             Function<Set<? extends Long>,
+                                                     Map<Long, UserResponseDto>> loader) {
+        return cache.getAll(ids, loader);
+    }
+
+    /**
+     * Puts the saved user into the cache once the current transaction commits.
+     */
+    public void put(UserResponseDto user) {
+        runAfterCommit(() -> cache.put(user.id(), user));
+    }
+
+    /**
+     * Evicts the user right away and once again after the current transaction commits,
+     * so a value loaded by a concurrent read before the commit does not survive it.
+     */
+    public void evict(Long id) {
+        cache.invalidate(id);
+        runAfterCommit(() -> cache.invalidate(id));
+    }
+}
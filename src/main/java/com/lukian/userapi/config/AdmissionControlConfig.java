@@ -0,0 +1,57 @@
+package com.lukian.userapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.lukian.userapi.admission.AdaptiveConcurrencyLimit;
+import com.lukian.userapi.admission.AdmissionControlFilter;
+import com.lukian.userapi.admission.AdmissionControlFilter.Group;
+import com.lukian.userapi.admission.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Puts the {@link AdmissionControlFilter} in front of the API. It runs right after
+ * the filter observing {@code http.server.requests}, so rejected requests are still
+ * measured, and before any filter or handler which may use the DB.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.admission.enabled", havingValue = "true")
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+public class AdmissionControlConfig {
+    private static final int FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE + 2;
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            AdmissionControlProperties properties, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        AdmissionControlProperties.RateLimit rateLimit = properties.rateLimit();
+        TokenBucketRateLimiter rateLimiter = rateLimit != null && rateLimit.enabled()
+                ? new TokenBucketRateLimiter(rateLimit.requestsPerSecond(), rateLimit.burst(),
+                        rateLimit.maxClients(), Ticker.systemTicker())
+                : null;
+        Map<Group, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Group.class);
+        limits.put(Group.SEARCH, createLimit(properties.search()));
+        limits.put(Group.LOOKUP, createLimit(properties.lookup()));
+        limits.put(Group.WRITE, createLimit(properties.write()));
+        limits.put(Group.BULK, AdaptiveConcurrencyLimit.fixed(properties.bulkLimit()));
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionControlFilter(rateLimiter, limits,
+                        properties.retryAfter(), objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(FILTER_ORDER);
+        return registration;
+    }
+
+    private AdaptiveConcurrencyLimit createLimit(
+            AdmissionControlProperties.ConcurrencyLimit limit) {
+        return new AdaptiveConcurrencyLimit(limit.initialLimit(), limit.minLimit(),
+                limit.maxLimit(), limit.latencyThreshold());
+    }
+}
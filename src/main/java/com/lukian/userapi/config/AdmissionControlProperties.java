@@ -0,0 +1,57 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the admission control, used when {@code user.admission.enabled} is set.
+ *
+ * @param rateLimit token bucket of every client
+ * @param search concurrency limit of the birth date search
+ * @param lookup concurrency limit of the reads of users by id and of upcoming birthdays
+ * @param write concurrency limit of writes
+ * @param bulkLimit fixed concurrency limit of batch registrations and imports
+ * @param retryAfter {@code Retry-After} sent with 503 responses of a saturated group
+ */
+@ConfigurationProperties(prefix = "user.admission")
+public record AdmissionControlProperties(
+        RateLimit rateLimit,
+        ConcurrencyLimit search,
+        ConcurrencyLimit lookup,
+        ConcurrencyLimit write,
+        int bulkLimit,
+        Duration retryAfter
+) {
+    public AdmissionControlProperties {
+        retryAfter = retryAfter == null ? Duration.ofSeconds(1) : retryAfter;
+    }
+
+    /**
+     * @param enabled whether clients are rate limited; off unless set, since clients behind
+     *                a shared NAT or sidecar address share one bucket
+     * @param requestsPerSecond sustained request rate of one client
+     * @param burst number of requests a client may send at once after being idle
+     * @param maxClients number of client buckets kept in memory
+     */
+    public record RateLimit(
+            boolean enabled,
+            double requestsPerSecond,
+            int burst,
+            long maxClients
+    ) {
+    }
+
+    /**
+     * @param initialLimit concurrent requests allowed on startup
+     * @param minLimit concurrent requests allowed however slow the requests are
+     * @param maxLimit concurrent requests allowed however fast the requests are
+     * @param latencyThreshold requests slower than this lower the limit
+     */
+    public record ConcurrencyLimit(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            Duration latencyThreshold
+    ) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.lukian.userapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Runs user import jobs outside of request threads.
+     *
+     * The pool is kept small on purpose: every job holds a DB connection
+     * while it writes a chunk, so imports must not starve the API.
+     */
+    @Bean
+    public TaskExecutor userImportExecutor(
+            @Value("${user.import.concurrency}") int concurrency,
+            @Value("${user.import.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("user-import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lukian.userapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.lukian.userapi.converter.ProtobufUserHttpMessageConverter;
+import com.lukian.userapi.converter.UserStreamWriters;
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Lets clients ask for CBOR ({@code application/cbor}), Smile
+ * ({@code application/x-jackson-smile}) or Protobuf ({@code application/x-protobuf})
+ * instead of JSON, and for their streamed variants from {@link UserStreamWriters}.
+ * <p>
+ * The mappers are built by Boot's {@link Jackson2ObjectMapperBuilder}, so users are
+ * written the same way as in JSON (e.g. dates as ISO strings). The converters are added
+ * after the JSON one, so clients which accept anything keep getting JSON.
+ */
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper protobufMapper;
+
+    public BinaryFormatConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        this.smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        this.protobufMapper = objectMapperBuilder.factory(new ProtobufFactory()).build();
+    }
+
+    @Bean
+    public UserStreamWriters userStreamWriters(ObjectMapper objectMapper) {
+        return new UserStreamWriters(objectMapper, cborMapper, smileMapper, protobufMapper);
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter ->
+                converter instanceof MappingJackson2CborHttpMessageConverter
+                        || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+        converters.add(new ProtobufUserHttpMessageConverter(protobufMapper));
+    }
+}
@@ -0,0 +1,94 @@
+package com.lukian.userapi.config;
+
+import com.lukian.userapi.datasource.ReadReplicaAspect;
+import com.lukian.userapi.datasource.ReadWriteRoutingDataSource;
+import com.lukian.userapi.datasource.ReadYourWritesFilter;
+import com.lukian.userapi.datasource.ReadYourWritesTracker;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the auto-configured data source with one which routes the
+ * {@code @Transactional(readOnly = true)} work of {@code @ReadReplica} methods
+ * to the read replicas.
+ * <p>
+ * Schema migrations and all writes keep going to the primary. The
+ * {@code spring.datasource.hikari.*} pool settings apply to the primary and every replica.
+ * The pools are not beans, so their {@code hikaricp.*} metrics are registered here,
+ * tagged with the pool names {@code primary} and {@code replica-N}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+    private static final String PRIMARY_POOL_NAME = "primary";
+    private static final String REPLICA_POOL_NAME_PREFIX = "replica-";
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(DataSourceRoutingProperties properties) {
+        return new ReadYourWritesTracker(properties.readYourWritesWindow());
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadYourWritesTracker tracker) {
+        return new ReadYourWritesFilter(tracker);
+    }
+
+    @Bean
+    public ReadReplicaAspect readReplicaAspect() {
+        return new ReadReplicaAspect();
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties primaryProperties,
+                                 DataSourceRoutingProperties properties,
+                                 ReadYourWritesTracker tracker,
+                                 Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        DataSource primary = configurePool(binder, meterRegistry, PRIMARY_POOL_NAME,
+                primaryProperties.initializeDataSourceBuilder()
+                        .type(HikariDataSource.class)
+                        .build());
+        List<DataSource> replicas = new ArrayList<>();
+        for (DataSourceRoutingProperties.Replica replica : properties.replicas()) {
+            replicas.add(configurePool(binder, meterRegistry,
+                    REPLICA_POOL_NAME_PREFIX + replicas.size(), DataSourceBuilder.create()
+                            .type(HikariDataSource.class)
+                            .url(replica.url())
+                            .username(replica.username())
+                            .password(replica.password())
+                            .build()));
+        }
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replicas, tracker));
+    }
+
+    private HikariDataSource configurePool(Binder binder,
+                                           ObjectProvider<MeterRegistry> meterRegistry,
+                                           String poolName,
+                                           HikariDataSource dataSource) {
+        HikariDataSource pool = binder.bind(HIKARI_PREFIX, Bindable.ofInstance(dataSource))
+                .orElse(dataSource);
+        pool.setPoolName(poolName);
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(
+                new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
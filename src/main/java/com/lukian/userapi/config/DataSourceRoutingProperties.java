@@ -0,0 +1,31 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replicas used when {@code user.datasource.routing.enabled} is set;
+ * the primary is configured with the usual {@code spring.datasource.*} properties.
+ *
+ * @param replicas connection settings of every replica
+ * @param readYourWritesWindow how long a client reads from the primary after a write,
+ *                             should exceed the usual replication lag
+ */
+@ConfigurationProperties(prefix = "user.datasource")
+public record DataSourceRoutingProperties(
+        List<Replica> replicas,
+        Duration readYourWritesWindow
+) {
+    public DataSourceRoutingProperties {
+        replicas = replicas == null ? List.of() : replicas;
+        readYourWritesWindow = readYourWritesWindow == null ? Duration.ZERO : readYourWritesWindow;
+    }
+
+    public record Replica(
+            String url,
+            String username,
+            String password
+    ) {
+    }
+}
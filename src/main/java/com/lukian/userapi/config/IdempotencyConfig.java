@@ -0,0 +1,52 @@
+package com.lukian.userapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.idempotency.IdempotencyFilter;
+import com.lukian.userapi.idempotency.IdempotencyStore;
+import com.lukian.userapi.idempotency.InMemoryIdempotencyStore;
+import com.lukian.userapi.idempotency.JdbcIdempotencyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Puts the {@link IdempotencyFilter} in front of the user endpoints. It runs after the
+ * admission control, so a request rejected there does not claim its key, and before
+ * the handlers, so a replayed response never reaches the service.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.idempotency.enabled", havingValue = "true")
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+    private static final int FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE + 3;
+
+    @Bean
+    public IdempotencyStore idempotencyStore(IdempotencyProperties properties,
+                                             ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        return switch (properties.store()) {
+            case MEMORY -> new InMemoryIdempotencyStore(properties.maximumWeight().toBytes(),
+                    properties.timeToLive());
+            case JDBC -> new JdbcIdempotencyStore(jdbcTemplate.getObject(),
+                    properties.timeToLive(), Clock.systemDefaultZone());
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore idempotencyStore, IdempotencyProperties properties,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyStore, properties.waitTimeout(),
+                        properties.maximumBodySize().toBytes(), objectMapper, meterRegistry));
+        registration.addUrlPatterns("/api/users/*");
+        registration.setOrder(FILTER_ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,45 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings of the {@code Idempotency-Key} support, used when
+ * {@code user.idempotency.enabled} is set.
+ *
+ * @param store where keys and responses are kept
+ * @param maximumWeight memory the keys and responses kept by the memory store may take
+ * @param maximumBodySize largest response body kept to be replayed; a larger one
+ *                        is replayed as its status and headers only
+ * @param timeToLive how long a key is kept and its response replayed
+ * @param waitTimeout how long a retry waits for the request with the same key
+ *                    processed on this instance before it gets 409
+ */
+@ConfigurationProperties(prefix = "user.idempotency")
+public record IdempotencyProperties(
+        Store store,
+        DataSize maximumWeight,
+        DataSize maximumBodySize,
+        Duration timeToLive,
+        Duration waitTimeout
+) {
+    public IdempotencyProperties {
+        store = store == null ? Store.MEMORY : store;
+        maximumWeight = maximumWeight == null ? DataSize.ofMegabytes(64) : maximumWeight;
+        maximumBodySize = maximumBodySize == null ? DataSize.ofKilobytes(64) : maximumBodySize;
+        timeToLive = timeToLive == null ? Duration.ofHours(24) : timeToLive;
+        waitTimeout = waitTimeout == null ? Duration.ofSeconds(10) : waitTimeout;
+    }
+
+    public enum Store {
+        /**
+         * Local to every instance.
+         */
+        MEMORY,
+        /**
+         * The idempotency_keys table, shared by all instances.
+         */
+        JDBC
+    }
+}
@@ -0,0 +1,23 @@
+package com.lukian.userapi.config;
+
+import com.lukian.userapi.service.UserRegistrationQueueService;
+import com.lukian.userapi.service.UserService;
+import com.lukian.userapi.service.impl.UserRegistrationQueueServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "user.registration-queue.enabled", havingValue = "true")
+@EnableConfigurationProperties(RegistrationQueueProperties.class)
+public class RegistrationQueueConfig {
+
+    @Bean
+    public UserRegistrationQueueService userRegistrationQueueService(
+            UserService userService, RegistrationQueueProperties properties,
+            MeterRegistry meterRegistry) {
+        return new UserRegistrationQueueServiceImpl(userService, properties, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the asynchronous registration, used when
+ * {@code user.registration-queue.enabled} is set.
+ *
+ * @param capacity number of registrations waiting to be written
+ * @param batchSize maximum number of registrations written in one transaction,
+ *                  at most {@code user.batch.max-size}
+ * @param flushInterval how long the writer waits for a batch to fill up
+ * @param offerTimeout how long a request waits for room in a full queue before it gets 503
+ * @param retryAfter {@code Retry-After} sent with 503 responses of a full queue
+ * @param statusMaximumSize number of registration outcomes kept, more than {@code capacity}
+ * @param statusTimeToLive how long the outcome of a registration is kept
+ */
+@ConfigurationProperties(prefix = "user.registration-queue")
+public record RegistrationQueueProperties(
+        int capacity,
+        int batchSize,
+        Duration flushInterval,
+        Duration offerTimeout,
+        Duration retryAfter,
+        long statusMaximumSize,
+        Duration statusTimeToLive
+) {
+    public RegistrationQueueProperties {
+        flushInterval = flushInterval == null ? Duration.ofMillis(50) : flushInterval;
+        offerTimeout = offerTimeout == null ? Duration.ZERO : offerTimeout;
+        retryAfter = retryAfter == null ? Duration.ofSeconds(1) : retryAfter;
+        statusTimeToLive = statusTimeToLive == null ? Duration.ofHours(1) : statusTimeToLive;
+    }
+}
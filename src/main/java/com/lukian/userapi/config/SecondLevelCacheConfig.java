@@ -0,0 +1,61 @@
+package com.lukian.userapi.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the regions of the Hibernate second-level cache in a local Caffeine JCache
+ * cache manager, bounded by {@link SecondLevelCacheProperties}.
+ * <p>
+ * Hibernate takes over the cache manager and closes it with the session factory.
+ * Every context gets its own cache manager, so regions never leak between contexts.
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+    private static final String CACHE_MANAGER_URI_PREFIX = "urn:userapi:second-level-cache:";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            SecondLevelCacheProperties properties) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER,
+                createCacheManager(properties.regions()));
+    }
+
+    private CacheManager createCacheManager(
+            Map<String, SecondLevelCacheProperties.Region> regions) {
+        CacheManager cacheManager = Caching
+                .getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(CACHE_MANAGER_URI_PREFIX + UUID.randomUUID()),
+                        getClass().getClassLoader());
+        regions.forEach((name, region) -> {
+            CaffeineConfiguration<Object, Object> configuration = createConfiguration();
+            configuration.setMaximumSize(OptionalLong.of(region.maximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(region.timeToLive().toNanos()));
+            cacheManager.createCache(name, configuration);
+        });
+        // With the query cache on, query results are only valid while this region
+        // remembers the last write to their tables, so it must never evict anything
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                createConfiguration());
+        return cacheManager;
+    }
+
+    private CaffeineConfiguration<Object, Object> createConfiguration() {
+        // Hibernate only caches disassembled, immutable state, so copying it on every
+        // read and write (the JCache default) would be wasted work
+        return new CaffeineConfiguration<>().setStoreByValue(false);
+    }
+}
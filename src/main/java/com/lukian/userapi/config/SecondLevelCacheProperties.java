@@ -0,0 +1,29 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Regions of the Hibernate second-level and query cache, by region name.
+ *
+ * @param regions bounds of every region; each region used by Hibernate must be listed
+ */
+@ConfigurationProperties(prefix = "user.second-level-cache")
+public record SecondLevelCacheProperties(
+        Map<String, Region> regions
+) {
+    public SecondLevelCacheProperties {
+        regions = regions == null ? Map.of() : regions;
+    }
+
+    /**
+     * @param maximumSize maximum number of entries in the region
+     * @param timeToLive how long an entry stays in the region after it was written
+     */
+    public record Region(
+            long maximumSize,
+            Duration timeToLive
+    ) {
+    }
+}
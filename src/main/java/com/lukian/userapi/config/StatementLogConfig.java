@@ -0,0 +1,50 @@
+package com.lukian.userapi.config;
+
+import com.lukian.userapi.datasource.StatementLog;
+import com.lukian.userapi.datasource.StatementLogFilter;
+import com.lukian.userapi.datasource.StatementLoggingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps every data source bean (including the routing one) in a
+ * {@link StatementLoggingDataSource}, which replaces Hibernate's show-sql:
+ * statements are timed and counted, and only slow, sampled and repeated ones are logged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.sql-log.enabled", havingValue = "true")
+@EnableConfigurationProperties(StatementLogProperties.class)
+public class StatementLogConfig {
+    @Bean
+    public StatementLog statementLog(StatementLogProperties properties,
+                                     MeterRegistry meterRegistry) {
+        return new StatementLog(properties.slowThreshold(), properties.sampleRate(),
+                properties.repeatedStatementThreshold(), meterRegistry);
+    }
+
+    @Bean
+    public StatementLogFilter statementLogFilter(StatementLog statementLog) {
+        return new StatementLogFilter(statementLog);
+    }
+
+    @Bean
+    public static BeanPostProcessor statementLoggingDataSourcePostProcessor(
+            ObjectProvider<StatementLog> statementLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource
+                        && !(bean instanceof StatementLoggingDataSource)) {
+                    return new StatementLoggingDataSource(dataSource, statementLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.lukian.userapi.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the SQL statement log, used when {@code user.sql-log.enabled} is set.
+ *
+ * @param slowThreshold statements running at least this long are always logged
+ * @param sampleRate share of the other statements which are logged, from 0 to 1
+ * @param repeatedStatementThreshold a statement executed this many times within one
+ *                                   request is reported as a possible N+1 query
+ */
+@ConfigurationProperties(prefix = "user.sql-log")
+public record StatementLogProperties(
+        Duration slowThreshold,
+        double sampleRate,
+        int repeatedStatementThreshold
+) {
+    public StatementLogProperties {
+        slowThreshold = slowThreshold == null ? Duration.ofMillis(200) : slowThreshold;
+        repeatedStatementThreshold = repeatedStatementThreshold <= 0
+                ? Integer.MAX_VALUE : repeatedStatementThreshold;
+    }
+}
@@ -1,17 +1,44 @@
 package com.lukian.userapi.controller;
 
+import com.lukian.userapi.converter.ProtobufUserHttpMessageConverter;
+import com.lukian.userapi.converter.UserStreamWriters;
+import com.lukian.userapi.converter.UserStreamWriters.UserStreamWriter;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
 import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.dto.UserLookupRequestDto;
+import com.lukian.userapi.dto.UserLookupResponseDto;
+import com.lukian.userapi.dto.UserPageResponseDto;
 import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
 import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.dto.UserStatisticsDto;
+import com.lukian.userapi.exception.PreconditionFailedException;
+import com.lukian.userapi.service.UserRegistrationQueueService;
 import com.lukian.userapi.service.UserService;
+import com.lukian.userapi.util.RequestUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -19,34 +46,196 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequestMapping("api/users")
 @RequiredArgsConstructor
 @Tag(name = "User management", description = "Endpoints for managing users")
 public class UserController {
+    private static final long MAX_PAGE_SIZE = 1000;
+    private static final long MAX_BIRTHDAY_WINDOW_DAYS = 365;
+    private static final String ETAG_QUOTE = "\"";
+    private static final String ETAG_TYPE_SEPARATOR = "-";
+    private static final String ANY_ETAG = "*";
+    private static final CacheControl USER_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+    /**
+     * Types a single user is written in, in the order of the message converters,
+     * so a client which accepts any of them gets JSON.
+     */
+    private static final List<MediaType> USER_TYPES = List.of(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"),
+            ProtobufUserHttpMessageConverter.PROTOBUF);
     private final UserService userService;
+    private final UserStreamWriters userStreamWriters;
+    private final ObjectProvider<UserRegistrationQueueService> registrationQueueService;
 
+    /**
+     * Registers the user.
+     *
+     * When the registration queue is enabled and the client prefers {@code respond-async}
+     * (among any other preferences of its {@code Prefer} headers), the request is validated
+     * and the email checked against the queued registrations right away, and the user
+     * is written with the next batch: 202 is returned with the {@code Location}
+     * of the outcome.
+     *
+     * @param accept accepted media types
+     * @param requestDto user to register
+     * @param request used to read the {@code Prefer} headers
+     * @return saved user, or queued status with the tracking id
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Register user",
-            description = "Create user, validate and save to DB")
-    public UserResponseDto registerUser(@RequestBody @Valid UserRegisterRequestDto requestDto) {
-        return userService.save(requestDto);
+            description = "Create user, validate and save to DB, or queue it to be saved "
+                    + "with the next batch when sent with Prefer: respond-async")
+    public ResponseEntity<?> registerUser(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestBody @Valid UserRegisterRequestDto requestDto,
+            HttpServletRequest request) throws HttpMediaTypeNotAcceptableException {
+        UserRegistrationQueueService queueService = registrationQueueService.getIfAvailable();
+        if (queueService != null
+                && RequestUtil.hasPreference(request, RequestUtil.RESPOND_ASYNC)) {
+            UserRegistrationStatusDto status = queueService.enqueue(requestDto);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                            .path("/registrations/{trackingId}")
+                            .buildAndExpand(status.trackingId())
+                            .toUri())
+                    .header(RequestUtil.PREFERENCE_APPLIED_HEADER,
+                            RequestUtil.RESPOND_ASYNC)
+                    .body(status);
+        }
+        MediaType type = selectUserType(accept);
+        UserResponseDto savedUser = userService.save(requestDto);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(type)
+                .eTag(toETag(savedUser, type))
+                .body(savedUser);
+    }
+
+    /**
+     * Registers a batch of users.
+     *
+     * Items are not validated as a whole: every item is validated separately
+     * (including the minimum age) and rejected items are reported in the response
+     * in the same position as in the request, while valid ones are saved.
+     *
+     * @param requestDtos users to register
+     * @return outcome of every item
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Register users in batch",
+            description = "Validate every user separately and save valid ones to DB in batches")
+    public BatchRegistrationResponseDto registerUsers(
+            @RequestBody List<UserRegisterRequestDto> requestDtos) {
+        return userService.saveAll(requestDtos);
+    }
+
+    /**
+     * Returns the users with the specified IDs in one round-trip.
+     *
+     * Users are returned in the order of the IDs (duplicates are returned once)
+     * and IDs without an active user are listed in {@code missing}.
+     *
+     * @param ids user ids, comma separated or repeated
+     * @return found users and missing ids
+     */
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get users",
+            description = "Returns users by IDs in the requested order and lists missing IDs")
+    public UserLookupResponseDto getUsersByIds(
+            @RequestParam("ids") @NotEmpty @Size(max = UserLookupRequestDto.MAX_IDS)
+            List<@NotNull Long> ids) {
+        return userService.getAllByIds(ids);
     }
 
+    /**
+     * Returns the users with the IDs from the request body, for ID lists
+     * too long for a query string; otherwise the same as {@link #getUsersByIds}.
+     *
+     * @param requestDto user ids
+     * @return found users and missing ids
+     */
+    @PostMapping("/lookup")
+    @Operation(summary = "Get users by body",
+            description = "Returns users by IDs from the request body in the requested order")
+    public UserLookupResponseDto lookupUsers(
+            @RequestBody @Valid UserLookupRequestDto requestDto) {
+        return userService.getAllByIds(requestDto.ids());
+    }
+
+    /**
+     * Returns the user by the specified user ID.
+     *
+     * Repeat reads are served from the application cache. Clients may keep the response
+     * but must revalidate it: when {@code If-None-Match} holds the current ETag,
+     * 304 is returned without serializing the body. Every format the user can be written in
+     * has its own ETag and the response varies by {@code Accept}, so a cached copy in one
+     * format is never confirmed for a request for another.
+     *
+     * @param id user id
+     * @param accept accepted media types
+     * @param request used to check the {@code If-None-Match} header
+     * @return user, or an empty 304 response if the client copy is up to date
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get user",
+            description = "Returns user by ID, supports conditional requests with ETag")
+    public ResponseEntity<UserResponseDto> getUserById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType type = selectUserType(accept);
+        UserResponseDto user = userService.getById(id);
+        String etag = toETag(user, type);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(USER_CACHE_CONTROL)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(type)
+                .eTag(etag)
+                .cacheControl(USER_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(user);
+    }
+
+    /**
+     * Updates user email by the specified user ID.
+     *
+     * If {@code If-Match} holds the ETag of a previous response, the email is changed
+     * only if the user has not been modified since, otherwise 412 is returned.
+     *
+     * @param id user id
+     * @param ifMatch ETag of the version the change is based on
+     * @param accept accepted media types
+     * @param requestDto containing the new email
+     * @return updated user
+     */
     @PatchMapping("/{id}")
     @Operation(summary = "Update email",
             description = "Update user email field")
     public ResponseEntity<UserResponseDto> updateUserEmailById(
             @PathVariable Long id,
-            @Valid @RequestBody UpdateUserRequestDto requestDto) {
-        UserResponseDto updatedUser = userService.updateUserEmailById(id, requestDto);
-        return ResponseEntity.ok(updatedUser);
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @Valid @RequestBody UpdateUserRequestDto requestDto)
+            throws HttpMediaTypeNotAcceptableException {
+        MediaType type = selectUserType(accept);
+        UserResponseDto updatedUser = userService.updateUserEmailById(id, requestDto,
+                parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .contentType(type)
+                .eTag(toETag(updatedUser, type))
+                .body(updatedUser);
     }
 
     /**
@@ -56,8 +245,11 @@ public class UserController {
      * as param since we are updating all the fields,
      * hence there is no need to create extra DTO;
      * UserRegisterRequestDto is well suited for this.
+     * {@code If-Match} is honored the same way as for the email update.
      *
      * @param id user id
+     * @param ifMatch ETag of the version the change is based on
+     * @param accept accepted media types
      * @param requestDto containing the updated user information
      * @return updated user
      */
@@ -66,16 +258,26 @@ public class UserController {
             description = "Updates all user data in fields")
     public ResponseEntity<UserResponseDto> updateCarById(
             @PathVariable Long id,
-            @Valid @RequestBody UserRegisterRequestDto requestDto) {
-        UserResponseDto updatedUser = userService.updateUserDataById(id, requestDto);
-        return ResponseEntity.ok(updatedUser);
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @Valid @RequestBody UserRegisterRequestDto requestDto)
+            throws HttpMediaTypeNotAcceptableException {
+        MediaType type = selectUserType(accept);
+        UserResponseDto updatedUser = userService.updateUserDataById(id, requestDto,
+                parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .contentType(type)
+                .eTag(toETag(updatedUser, type))
+                .body(updatedUser);
     }
 
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete user",
             description = "Deletes user from DB by specified ID")
-    public ResponseEntity<Void> deleteCarById(@PathVariable Long id) {
-        userService.deleteById(id);
+    public ResponseEntity<Void> deleteCarById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteById(id, parseIfMatch(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
@@ -87,4 +289,160 @@ public class UserController {
             @RequestParam("to") LocalDate toDate) {
         return userService.searchByBirthDateRange(fromDate, toDate);
     }
+
+    /**
+     * Searches users by the specified range of birth dates page by page.
+     *
+     * Selected when the {@code limit} parameter is present, so clients which
+     * do not page keep getting the plain list from {@link #getUsersByBirthDateRange}.
+     * Pages are ordered by birth date and id; pass the {@code next} value of a page
+     * as {@code cursor} to get the following one.
+     *
+     * @param fromDate start date of the birth date range
+     * @param toDate end date of the birth date range
+     * @param limit maximum number of users on the page
+     * @param cursor opaque position returned with the previous page
+     * @return page of users with the cursor of the next page
+     */
+    @GetMapping(value = "/search", params = "limit")
+    @Operation(summary = "Search user page",
+            description = "Searches user by given range of birth dates using cursor pagination")
+    public UserPageResponseDto getUsersPageByBirthDateRange(
+            @RequestParam("from") LocalDate fromDate,
+            @RequestParam("to") LocalDate toDate,
+            @RequestParam("limit") @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return userService.searchByBirthDateRange(fromDate, toDate, cursor, limit);
+    }
+
+    /**
+     * Searches users who have a birthday within the next {@code days} days.
+     *
+     * Unlike {@link #getUsersByBirthDateRange}, only the month and day of the birth date
+     * are matched, so the window may wrap around New Year.
+     *
+     * @param fromDate first day of the window, today by default
+     * @param days number of days after {@code fromDate} to include, 0 for that day only
+     * @return users ordered by the upcoming birthday
+     */
+    @GetMapping("/birthdays")
+    @Operation(summary = "Search upcoming birthdays",
+            description = "Searches users with birthday within the given number of days")
+    public List<UserResponseDto> getUsersWithUpcomingBirthdays(
+            @RequestParam(value = "from", required = false) LocalDate fromDate,
+            @RequestParam("days") @Min(0) @Max(MAX_BIRTHDAY_WINDOW_DAYS) int days) {
+        return userService.searchUpcomingBirthdays(
+                fromDate == null ? LocalDate.now() : fromDate, days);
+    }
+
+    /**
+     * Returns user counts by birth year, age bucket and active/deleted state.
+     *
+     * Served from counters maintained in memory, so dashboards do not need
+     * to pull users and count them on their side.
+     *
+     * @return user statistics
+     */
+    @GetMapping("/statistics")
+    @Operation(summary = "Get user statistics",
+            description = "Returns user counts by birth year, age bucket and active/deleted state")
+    public UserStatisticsDto getStatistics() {
+        return userService.getStatistics();
+    }
+
+    /**
+     * Streams users by the specified range of birth dates.
+     *
+     * Selected when the client accepts one of the {@link UserStreamWriters#STREAM_TYPES},
+     * e.g. {@code Accept: application/x-ndjson} for one JSON user per line.
+     * Every user is written to the response as soon as it is read from DB,
+     * so the whole result is never held in memory.
+     *
+     * @param fromDate start date of the birth date range
+     * @param toDate end date of the birth date range
+     * @param accept accepted media types
+     * @return body which writes the users one by one
+     */
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_NDJSON_VALUE,
+            UserStreamWriters.CBOR_SEQ_VALUE, UserStreamWriters.SMILE_SEQ_VALUE,
+            UserStreamWriters.PROTOBUF_DELIMITED_VALUE})
+    @Operation(summary = "Stream users",
+            description = "Streams users by given range of birth dates as NDJSON, "
+                    + "CBOR or Smile sequence or length-delimited Protobuf")
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRange(
+            @RequestParam("from") LocalDate fromDate,
+            @RequestParam("to") LocalDate toDate,
+            @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        MediaType type = userStreamWriters.selectType(MediaType.parseMediaTypes(accept));
+        StreamingResponseBody body = outputStream -> {
+            try (UserStreamWriter writer = userStreamWriters.open(type, outputStream)) {
+                userService.streamByBirthDateRange(fromDate, toDate,
+                        user -> write(writer, user));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(type)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    private void write(UserStreamWriter writer, UserResponseDto user) {
+        try {
+            writer.write(user);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write user with id: " + user.id(), e);
+        }
+    }
+
+    /**
+     * Picks the type the user is written in the same way the message converters would,
+     * by the quality and specificity of the {@code Accept} types, so the ETag can name it.
+     */
+    private MediaType selectUserType(String accept) throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isBlank()) {
+            return USER_TYPES.get(0);
+        }
+        List<MediaType> acceptedTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        MimeTypeUtils.sortBySpecificity(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType userType : USER_TYPES) {
+                if (acceptedType.isCompatibleWith(userType)) {
+                    return userType;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(USER_TYPES);
+    }
+
+    /**
+     * Builds the ETag from the user version and the subtype of the format,
+     * e.g. {@code "3-json"} or {@code "3-cbor"}.
+     */
+    private String toETag(UserResponseDto user, MediaType type) {
+        return ETAG_QUOTE + user.version() + ETAG_TYPE_SEPARATOR + type.getSubtype() + ETAG_QUOTE;
+    }
+
+    /**
+     * Reads the version from a single strong ETag issued by this controller, in any format;
+     * a bare version (e.g. {@code "3"}) is accepted as well.
+     * {@code *} or no header means the change is unconditional; anything else
+     * cannot match any version, which is a failed precondition as well.
+     */
+    private Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ANY_ETAG.equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith(ETAG_QUOTE) && tag.endsWith(ETAG_QUOTE)) {
+            String value = tag.substring(1, tag.length() - 1);
+            int typeSeparator = value.indexOf(ETAG_TYPE_SEPARATOR);
+            try {
+                return Long.valueOf(typeSeparator < 0 ? value : value.substring(0, typeSeparator));
+            } catch (NumberFormatException e) {
+                // falls through to the failed precondition below
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match the current version: "
+                + ifMatch);
+    }
 }
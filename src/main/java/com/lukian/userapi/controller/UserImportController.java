@@ -0,0 +1,72 @@
+package com.lukian.userapi.controller;
+
+import com.lukian.userapi.dto.UserImportJobResponseDto;
+import com.lukian.userapi.dto.UserImportRejectionDto;
+import com.lukian.userapi.dto.UserImportRequestDto;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.service.UserImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("api/users/imports")
+@RequiredArgsConstructor
+@Tag(name = "User import", description = "Endpoints for importing users from files")
+public class UserImportController {
+    private final UserImportService userImportService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Upload import file",
+            description = "Upload CSV or NDJSON file and start importing users from it")
+    public UserImportJobResponseDto uploadFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("format") UserImportJob.Format format) {
+        return userImportService.importFile(file, format);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Import local file",
+            description = "Start importing users from a file in the server import directory")
+    public UserImportJobResponseDto importFile(
+            @RequestBody @Valid UserImportRequestDto requestDto) {
+        return userImportService.importFile(requestDto);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get import job",
+            description = "Get status and progress of the import job")
+    public UserImportJobResponseDto getJob(@PathVariable Long id) {
+        return userImportService.getJob(id);
+    }
+
+    @GetMapping("/{id}/rejections")
+    @Operation(summary = "Get rejected rows",
+            description = "Get rejected lines of the import job with the reasons")
+    public List<UserImportRejectionDto> getRejections(@PathVariable Long id) {
+        return userImportService.getRejections(id);
+    }
+
+    @PostMapping("/{id}/resume")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Resume import job",
+            description = "Resume failed import job after its last committed chunk")
+    public UserImportJobResponseDto resume(@PathVariable Long id) {
+        return userImportService.resume(id);
+    }
+}
@@ -0,0 +1,35 @@
+package com.lukian.userapi.controller;
+
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
+import com.lukian.userapi.service.UserRegistrationQueueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/users")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.registration-queue.enabled", havingValue = "true")
+@Tag(name = "User registration queue", description = "Endpoints for registering users in batches")
+public class UserRegistrationQueueController {
+    private final UserRegistrationQueueService registrationQueueService;
+
+    /**
+     * Returns the outcome of a registration queued by {@link UserController#registerUser}
+     * with {@code Prefer: respond-async}.
+     *
+     * @param trackingId id returned when the registration was queued
+     * @return queued, registered or rejected status
+     */
+    @GetMapping("/registrations/{trackingId}")
+    @Operation(summary = "Get queued registration",
+            description = "Returns the outcome of the queued user registration")
+    public UserRegistrationStatusDto getRegistration(@PathVariable String trackingId) {
+        return registrationQueueService.getStatus(trackingId);
+    }
+}
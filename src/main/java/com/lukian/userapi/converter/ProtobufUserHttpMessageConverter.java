@@ -0,0 +1,85 @@
+package com.lukian.userapi.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.lukian.userapi.dto.UserPageResponseDto;
+import com.lukian.userapi.dto.UserResponseDto;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Writes users, lists and pages of users as the Protobuf messages of
+ * {@link UserProtobufSchemas}. Lists are written as {@code Users} without {@code next}.
+ * <p>
+ * Only responses are supported; any other body (e.g. an error) needs another
+ * acceptable type, such as {@code Accept: application/x-protobuf, application/json;q=0.5}.
+ */
+public class ProtobufUserHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+    private final ObjectMapper protobufMapper;
+
+    public ProtobufUserHttpMessageConverter(ObjectMapper protobufMapper) {
+        super(PROTOBUF);
+        this.protobufMapper = protobufMapper;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (isUserList(type) || supports(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == UserResponseDto.class || clazz == UserPageResponseDto.class;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf requests are not supported",
+                inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        ProtobufSchema schema = UserProtobufSchemas.USERS;
+        Object message = object;
+        if (object instanceof UserResponseDto) {
+            schema = UserProtobufSchemas.USER;
+        } else if (object instanceof List<?> users) {
+            message = new UserPageResponseDto((List<UserResponseDto>) users, null);
+        }
+        protobufMapper.writer(schema)
+                .writeValue(StreamUtils.nonClosing(outputMessage.getBody()), message);
+    }
+
+    private boolean isUserList(Type type) {
+        return type instanceof ParameterizedType parameterizedType
+                && List.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())
+                && parameterizedType.getActualTypeArguments()[0] == UserResponseDto.class;
+    }
+}
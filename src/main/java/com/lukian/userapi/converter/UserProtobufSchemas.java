@@ -0,0 +1,39 @@
+package com.lukian.userapi.converter;
+
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Messages of {@value #SCHEMA_LOCATION}, which Protobuf clients may compile
+ * to read the users; the API writes them with Jackson, without generated classes.
+ */
+public final class UserProtobufSchemas {
+    public static final String SCHEMA_LOCATION = "/proto/user.proto";
+    /**
+     * A single {@link com.lukian.userapi.dto.UserResponseDto}.
+     */
+    public static final ProtobufSchema USER;
+    /**
+     * A list of users or a {@link com.lukian.userapi.dto.UserPageResponseDto}.
+     */
+    public static final ProtobufSchema USERS;
+
+    static {
+        try (InputStream schema = UserProtobufSchemas.class.getResourceAsStream(
+                SCHEMA_LOCATION)) {
+            NativeProtobufSchema nativeSchema = ProtobufSchemaLoader.std.loadNative(
+                    schema, false);
+            USER = nativeSchema.forType("User");
+            USERS = nativeSchema.forType("Users");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load " + SCHEMA_LOCATION, e);
+        }
+    }
+
+    private UserProtobufSchemas() {
+    }
+}
@@ -0,0 +1,136 @@
+package com.lukian.userapi.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.lukian.userapi.dto.UserResponseDto;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Writes streamed users one by one in one of the {@link #STREAM_TYPES},
+ * so the response can be sent while the users are still being read from DB:
+ * <ul>
+ *     <li>{@code application/x-ndjson} - one JSON user per line</li>
+ *     <li>{@code application/cbor-seq} - CBOR users one after another (RFC 8742)</li>
+ *     <li>{@code application/x-jackson-smile-seq} - Smile users one after another,
+ *     sharing one header and the back-references of repeated names and values</li>
+ *     <li>{@code application/x-protobuf-delimited} - {@code User} messages each
+ *     preceded by its varint length, as written by Protobuf's {@code writeDelimitedTo}</li>
+ * </ul>
+ */
+public class UserStreamWriters {
+    public static final String CBOR_SEQ_VALUE = "application/cbor-seq";
+    public static final String SMILE_SEQ_VALUE = "application/x-jackson-smile-seq";
+    public static final String PROTOBUF_DELIMITED_VALUE = "application/x-protobuf-delimited";
+    public static final MediaType CBOR_SEQ = MediaType.parseMediaType(CBOR_SEQ_VALUE);
+    public static final MediaType SMILE_SEQ = MediaType.parseMediaType(SMILE_SEQ_VALUE);
+    public static final MediaType PROTOBUF_DELIMITED =
+            MediaType.parseMediaType(PROTOBUF_DELIMITED_VALUE);
+    public static final List<MediaType> STREAM_TYPES =
+            List.of(MediaType.APPLICATION_NDJSON, CBOR_SEQ, SMILE_SEQ, PROTOBUF_DELIMITED);
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION_BIT = 0x80;
+    private final ObjectWriter jsonWriter;
+    private final ObjectWriter cborWriter;
+    private final ObjectWriter smileWriter;
+    private final ObjectWriter protobufWriter;
+
+    public UserStreamWriters(ObjectMapper jsonMapper, ObjectMapper cborMapper,
+                             ObjectMapper smileMapper, ObjectMapper protobufMapper) {
+        this.jsonWriter = jsonMapper.writerFor(UserResponseDto.class);
+        this.cborWriter = cborMapper.writerFor(UserResponseDto.class);
+        this.smileWriter = smileMapper.writerFor(UserResponseDto.class);
+        this.protobufWriter = protobufMapper.writerFor(UserResponseDto.class)
+                .with(UserProtobufSchemas.USER);
+    }
+
+    /**
+     * Picks the stream type the client prefers, by the quality and specificity
+     * of its {@code Accept} types; NDJSON when it accepts any of them.
+     *
+     * @param acceptedTypes types from the {@code Accept} header
+     * @return one of {@link #STREAM_TYPES}
+     */
+    public MediaType selectType(List<MediaType> acceptedTypes) {
+        List<MediaType> sortedTypes = new ArrayList<>(acceptedTypes);
+        MimeTypeUtils.sortBySpecificity(sortedTypes);
+        for (MediaType acceptedType : sortedTypes) {
+            for (MediaType streamType : STREAM_TYPES) {
+                if (acceptedType.isCompatibleWith(streamType)) {
+                    return streamType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_NDJSON;
+    }
+
+    /**
+     * Opens a writer of the given stream type; closing it finishes the stream
+     * but leaves the output stream open.
+     *
+     * @param type one of {@link #STREAM_TYPES}
+     * @param outputStream response body
+     * @return writer of users
+     */
+    public UserStreamWriter open(MediaType type, OutputStream outputStream) throws IOException {
+        OutputStream body = StreamUtils.nonClosing(outputStream);
+        if (CBOR_SEQ.equals(type)) {
+            return sequenceWriter(cborWriter.writeValues(body));
+        }
+        if (SMILE_SEQ.equals(type)) {
+            return sequenceWriter(smileWriter.writeValues(body));
+        }
+        if (PROTOBUF_DELIMITED.equals(type)) {
+            return user -> {
+                byte[] message = protobufWriter.writeValueAsBytes(user);
+                writeVarint(body, message.length);
+                body.write(message);
+            };
+        }
+        return user -> {
+            body.write(jsonWriter.writeValueAsBytes(user));
+            body.write(LINE_SEPARATOR);
+        };
+    }
+
+    private static UserStreamWriter sequenceWriter(SequenceWriter sequenceWriter) {
+        return new UserStreamWriter() {
+            @Override
+            public void write(UserResponseDto user) throws IOException {
+                sequenceWriter.write(user);
+            }
+
+            @Override
+            public void close() throws IOException {
+                sequenceWriter.close();
+            }
+        };
+    }
+
+    private static void writeVarint(OutputStream outputStream, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~VARINT_PAYLOAD_MASK) != 0) {
+            outputStream.write((remaining & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION_BIT);
+            remaining >>>= VARINT_PAYLOAD_BITS;
+        }
+        outputStream.write(remaining);
+    }
+
+    @FunctionalInterface
+    public interface UserStreamWriter extends Closeable {
+        void write(UserResponseDto user) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+}
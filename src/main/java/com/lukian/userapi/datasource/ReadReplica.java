@@ -0,0 +1,20 @@
+package com.lukian.userapi.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets the read-only transaction of the annotated method be served by a read replica.
+ * <p>
+ * Only reads which can tolerate the replication lag should carry it: the read-only
+ * transactions Spring Data opens on its own (e.g. {@code findById} before a save)
+ * keep going to the primary.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadReplica {
+}
@@ -0,0 +1,22 @@
+package com.lukian.userapi.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Marks the calls of {@link ReadReplica} methods for the {@link ReadWriteRoutingDataSource}.
+ */
+@Aspect
+public class ReadReplicaAspect {
+
+    @Around("@annotation(com.lukian.userapi.datasource.ReadReplica)")
+    public Object allowReplicaReads(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadWriteRoutingDataSource.allowReplicaReads();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.restoreReplicaReads(previous);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.lukian.userapi.datasource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions of {@link ReadReplica} methods to the read replicas
+ * (round robin) and everything else to the primary.
+ * <p>
+ * The transaction's read-only flag is only known once the transaction has begun,
+ * so this data source must be wrapped into a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * which fetches the physical connection on the first statement. Clients which have
+ * written recently (see {@link ReadYourWritesTracker}) keep reading from the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA_PREFIX = "replica-";
+    private static final ThreadLocal<Boolean> REPLICA_READS_ALLOWED =
+            ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ReadYourWritesTracker tracker;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                      ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = REPLICA_PREFIX + i;
+            replicaKeys.add(key);
+            targetDataSources.put(key, replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.isEmpty()
+                || !REPLICA_READS_ALLOWED.get()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || tracker.hasRecentWrite()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    /**
+     * Lets the read-only transactions of the current thread go to a replica.
+     *
+     * @return The previous state, to be passed to {@link #restoreReplicaReads(boolean)}.
+     */
+    static boolean allowReplicaReads() {
+        boolean previous = REPLICA_READS_ALLOWED.get();
+        REPLICA_READS_ALLOWED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restoreReplicaReads(boolean previous) {
+        if (previous) {
+            REPLICA_READS_ALLOWED.set(Boolean.TRUE);
+        } else {
+            REPLICA_READS_ALLOWED.remove();
+        }
+    }
+}
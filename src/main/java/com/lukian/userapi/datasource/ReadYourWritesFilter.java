@@ -0,0 +1,41 @@
+package com.lukian.userapi.datasource;
+
+import com.lukian.userapi.util.RequestUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Binds the client of every request to the {@link ReadYourWritesTracker}
+ * and records successful writes (anything but GET, HEAD and OPTIONS).
+ * <p>
+ * Clients are told apart by {@link RequestUtil#getClient}, so all clients sharing
+ * a remote address, e.g. behind a NAT, read from the primary after one of them writes.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(),
+            HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+    private final ReadYourWritesTracker tracker;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        tracker.bind(RequestUtil.getClient(request));
+        try {
+            filterChain.doFilter(request, response);
+            if (!READ_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+                tracker.recordWrite();
+            }
+        } finally {
+            tracker.unbind();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lukian.userapi.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+
+/**
+ * Remembers which clients have written recently, so their reads can be kept
+ * on the primary until the replicas have caught up with their writes.
+ * <p>
+ * The client of the current thread is bound by {@link ReadYourWritesFilter}
+ * for the duration of a request; threads without a client are never pinned.
+ */
+public class ReadYourWritesTracker {
+    private static final long MAXIMUM_TRACKED_CLIENTS = 100_000;
+    private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_TRACKED_CLIENTS)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void bind(String client) {
+        currentClient.set(client);
+    }
+
+    public void unbind() {
+        currentClient.remove();
+    }
+
+    /**
+     * Pins the current client to the primary for the configured window.
+     */
+    public void recordWrite() {
+        String client = currentClient.get();
+        if (client != null) {
+            recentWriters.put(client, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Tells whether the current client has written within the configured window.
+     */
+    public boolean hasRecentWrite() {
+        String client = currentClient.get();
+        return client != null && recentWriters.getIfPresent(client) != null;
+    }
+}
@@ -0,0 +1,118 @@
+package com.lukian.userapi.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records every executed SQL statement: its time and row count go to the
+ * {@value #STATEMENTS_METRIC} timer and {@value #ROWS_METRIC} summary, while only
+ * slow statements and a random sample of the others are logged.
+ * <p>
+ * Within an HTTP request (see {@link StatementLogFilter}) executions are also counted
+ * per SQL text, and statements repeated at least {@code repeatedStatementThreshold}
+ * times are reported once the request completes, as they usually point at an N+1 query.
+ * A JDBC batch counts as one execution.
+ */
+@Slf4j
+public class StatementLog {
+    public static final String STATEMENTS_METRIC = "user.sql.statements";
+    public static final String ROWS_METRIC = "user.sql.statement.rows";
+    private static final ThreadLocal<Map<String, Integer>> REQUEST_STATEMENTS =
+            new ThreadLocal<>();
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int repeatedStatementThreshold;
+    private final Map<Type, Timer> timers = new EnumMap<>(Type.class);
+    private final Map<Type, DistributionSummary> rowCounts = new EnumMap<>(Type.class);
+
+    public StatementLog(Duration slowThreshold, double sampleRate,
+                        int repeatedStatementThreshold, MeterRegistry meterRegistry) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+        for (Type type : Type.values()) {
+            timers.put(type, Timer.builder(STATEMENTS_METRIC)
+                    .description("Execution time of SQL statements, including row fetching")
+                    .tag("type", type.getTag())
+                    .register(meterRegistry));
+            rowCounts.put(type, DistributionSummary.builder(ROWS_METRIC)
+                    .description("Rows read or changed by a SQL statement")
+                    .baseUnit("rows")
+                    .tag("type", type.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param type kind of the execution
+     * @param sql statement text, with parameter placeholders
+     * @param nanos time spent in the JDBC driver, including fetching the rows of a query
+     * @param rows rows read or changed, negative if unknown
+     */
+    public void executed(Type type, String sql, long nanos, long rows) {
+        timers.get(type).record(nanos, TimeUnit.NANOSECONDS);
+        if (rows >= 0) {
+            rowCounts.get(type).record(rows);
+        }
+        Map<String, Integer> requestStatements = REQUEST_STATEMENTS.get();
+        if (requestStatements != null) {
+            requestStatements.merge(sql, 1, Integer::sum);
+        }
+        if (nanos >= slowThresholdNanos) {
+            log.warn("Slow {} took {} ms, {} rows: {}", type.getTag(),
+                    TimeUnit.NANOSECONDS.toMillis(nanos), rows, sql);
+        } else if (sampleRate > 0 && log.isInfoEnabled()
+                && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Sampled {} took {} us, {} rows: {}", type.getTag(),
+                    TimeUnit.NANOSECONDS.toMicros(nanos), rows, sql);
+        }
+    }
+
+    /**
+     * Starts counting the statements executed by the current thread.
+     */
+    public void startRequest() {
+        REQUEST_STATEMENTS.set(new HashMap<>());
+    }
+
+    /**
+     * Stops counting and reports the statements repeated within the request.
+     *
+     * @param request description of the request for the log, e.g. method and URI
+     */
+    public void finishRequest(String request) {
+        Map<String, Integer> requestStatements = REQUEST_STATEMENTS.get();
+        REQUEST_STATEMENTS.remove();
+        if (requestStatements == null) {
+            return;
+        }
+        requestStatements.forEach((sql, executions) -> {
+            if (executions >= repeatedStatementThreshold) {
+                log.warn("Statement executed {} times in {}, possible N+1 query: {}",
+                        executions, request, sql);
+            }
+        });
+    }
+
+    @Getter
+    public enum Type {
+        QUERY,
+        UPDATE,
+        BATCH,
+        EXECUTE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,33 @@
+package com.lukian.userapi.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Lets the {@link StatementLog} count the statements executed by every request,
+ * to report the ones repeated within it.
+ * <p>
+ * Statements of a streamed response body run on another thread after this filter
+ * returns and are not counted.
+ */
+@RequiredArgsConstructor
+public class StatementLogFilter extends OncePerRequestFilter {
+    private final StatementLog statementLog;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        statementLog.startRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statementLog.finishRequest(request.getMethod() + " " + request.getRequestURI());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.lukian.userapi.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source which times every statement executed through its connections
+ * and reports it to the {@link StatementLog}.
+ * <p>
+ * A query is reported once its result set is closed, so its time includes fetching
+ * the rows (but not what the caller does between them) and its row count is the number
+ * of rows read. Updates and batches are reported right after they run.
+ * <p>
+ * Connections, statements and result sets are wrapped in JDK proxies which observe only
+ * the execute, {@code addBatch}, {@code next} and {@code close} calls and pass every other
+ * call to their target, so no JDBC method needs to be delegated by hand.
+ */
+public class StatementLoggingDataSource extends DelegatingDataSource {
+    private static final String BATCH_SQL = "<statement batch>";
+    private final StatementLog statementLog;
+
+    public StatementLoggingDataSource(DataSource targetDataSource, StatementLog statementLog) {
+        super(targetDataSource);
+        this.statementLog = statementLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class,
+                new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementLoggingDataSource.class.getClassLoader(),
+                new Class<?>[] {type}, handler));
+    }
+
+    private static long sumRows(Object updateCounts) {
+        long rows = -1;
+        if (updateCounts instanceof int[] counts) {
+            for (int count : counts) {
+                rows = count >= 0 ? Math.max(rows, 0) + count : rows;
+            }
+        } else if (updateCounts instanceof long[] counts) {
+            for (long count : counts) {
+                rows = count >= 0 ? Math.max(rows, 0) + count : rows;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Keeps the identity of the proxy for {@code equals} and {@code hashCode}
+     * and passes every other call to the target, unwrapping its exceptions.
+     */
+    private abstract static class Handler implements InvocationHandler {
+        protected final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> handle(method, args);
+            };
+        }
+
+        protected abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        protected Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends Handler {
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            Class<?> type = method.getReturnType();
+            if (result == null || !Statement.class.isAssignableFrom(type)) {
+                return result;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String text
+                    ? text : null;
+            return proxy(type, new StatementHandler((Statement) result, sql));
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        private final StatementTimer timer;
+
+        StatementHandler(Statement target, String sql) {
+            super(target);
+            this.timer = new StatementTimer(sql);
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if ("addBatch".equals(name) && args != null && args.length > 0) {
+                    timer.batchAdded();
+                } else if ("close".equals(name)) {
+                    timer.finishResultSet();
+                }
+                return delegate(method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String text
+                    ? text : null;
+            return switch (name) {
+                case "executeQuery" -> timer.query(sql,
+                        () -> (ResultSet) delegate(method, args));
+                case "executeUpdate", "executeLargeUpdate" -> timer.execute(
+                        StatementLog.Type.UPDATE, sql, () -> delegate(method, args));
+                case "executeBatch", "executeLargeBatch" -> timer.execute(
+                        StatementLog.Type.BATCH, sql, () -> delegate(method, args));
+                default -> timer.execute(
+                        StatementLog.Type.EXECUTE, sql, () -> delegate(method, args));
+            };
+        }
+    }
+
+    /**
+     * Times the executions of one statement and reports them to the {@link StatementLog}.
+     */
+    private final class StatementTimer {
+        private String sql;
+        private ResultSetHandler resultSet;
+
+        StatementTimer(String sql) {
+            this.sql = sql;
+        }
+
+        void batchAdded() {
+            sql = BATCH_SQL;
+        }
+
+        /**
+         * Runs a query; it is reported once its result set is closed.
+         *
+         * @param executedSql SQL text passed to the execute call, or null for the statement's
+         */
+        <E extends Throwable> ResultSet query(String executedSql,
+                                              JdbcCall<ResultSet, E> call) throws E {
+            finishResultSet();
+            long start = System.nanoTime();
+            ResultSet result = call.run();
+            long nanos = System.nanoTime() - start;
+            resultSet = new ResultSetHandler(result, executedSql == null ? sql : executedSql,
+                    nanos);
+            return proxy(ResultSet.class, resultSet);
+        }
+
+        /**
+         * Runs and reports an update, a batch or a statement of unknown kind.
+         *
+         * @param executedSql SQL text passed to the execute call, or null for the statement's
+         */
+        <T, E extends Throwable> T execute(StatementLog.Type type, String executedSql,
+                                           JdbcCall<T, E> call) throws E {
+            finishResultSet();
+            long start = System.nanoTime();
+            T result = call.run();
+            long nanos = System.nanoTime() - start;
+            long rows = switch (type) {
+                case UPDATE -> ((Number) result).longValue();
+                case BATCH -> sumRows(result);
+                default -> -1;
+            };
+            statementLog.executed(type, executedSql == null ? sql : executedSql, nanos, rows);
+            return result;
+        }
+
+        /**
+         * Reports the last query in case its result set was closed implicitly,
+         * by closing the statement or running another one.
+         */
+        void finishResultSet() {
+            if (resultSet != null) {
+                resultSet.finish();
+                resultSet = null;
+            }
+        }
+    }
+
+    private final class ResultSetHandler extends Handler {
+        private final String sql;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet target, String sql, long executeNanos) {
+            super(target);
+            this.sql = sql;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "next" -> {
+                    long start = System.nanoTime();
+                    boolean hasRow = (Boolean) delegate(method, args);
+                    nanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        rows++;
+                    }
+                    yield hasRow;
+                }
+                case "close" -> {
+                    delegate(method, args);
+                    finish();
+                    yield null;
+                }
+                default -> delegate(method, args);
+            };
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                statementLog.executed(StatementLog.Type.QUERY, sql, nanos, rows);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface JdbcCall<T, E extends Throwable> {
+        T run() throws E;
+    }
+}
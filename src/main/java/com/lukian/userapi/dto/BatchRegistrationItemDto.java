@@ -0,0 +1,15 @@
+package com.lukian.userapi.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a single item of the batch registration.
+ * <p>
+ * Either {@code user} holds the registered user or {@code errors}
+ * lists the reasons why the item was rejected.
+ */
+public record BatchRegistrationItemDto(
+        UserResponseDto user,
+        List<String> errors
+) {
+}
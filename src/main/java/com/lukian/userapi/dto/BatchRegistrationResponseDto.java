@@ -0,0 +1,16 @@
+package com.lukian.userapi.dto;
+
+import java.util.List;
+
+/**
+ * Result of the batch registration.
+ * <p>
+ * {@code items} are in the same order as in the request,
+ * so every outcome can be matched with the item it belongs to.
+ */
+public record BatchRegistrationResponseDto(
+        int created,
+        int rejected,
+        List<BatchRegistrationItemDto> items
+) {
+}
@@ -0,0 +1,40 @@
+package com.lukian.userapi.dto;
+
+import com.lukian.userapi.exception.InvalidCursorException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last user on a page of the birth date range search.
+ * <p>
+ * Encoded as URL-safe Base64 so clients treat it as an opaque token
+ * and do not depend on its structure.
+ */
+public record BirthDateCursor(
+        LocalDate birthDate,
+        Long id
+) {
+    private static final String SEPARATOR = ":";
+
+    public String encode() {
+        String value = birthDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BirthDateCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token),
+                    StandardCharsets.UTF_8);
+            String[] parts = value.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new InvalidCursorException("Invalid cursor: " + token);
+            }
+            return new BirthDateCursor(LocalDate.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
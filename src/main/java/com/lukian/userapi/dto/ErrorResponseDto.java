@@ -0,0 +1,15 @@
+package com.lukian.userapi.dto;
+
+import java.time.LocalDateTime;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Error response of a {@link com.lukian.userapi.exception.UserApiException}, with the same
+ * fields as the other error responses but serialized without building a map for each one.
+ */
+public record ErrorResponseDto(
+        LocalDateTime timestamp,
+        HttpStatus status,
+        String errors
+) {
+}
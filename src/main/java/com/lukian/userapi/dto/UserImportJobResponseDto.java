@@ -0,0 +1,17 @@
+package com.lukian.userapi.dto;
+
+import com.lukian.userapi.model.UserImportJob;
+import java.time.LocalDateTime;
+
+public record UserImportJobResponseDto(
+        Long id,
+        UserImportJob.Format format,
+        UserImportJob.Status status,
+        long processedLines,
+        long importedRows,
+        long rejectedRows,
+        String errorMessage,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
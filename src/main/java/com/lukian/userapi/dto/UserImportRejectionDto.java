@@ -0,0 +1,7 @@
+package com.lukian.userapi.dto;
+
+public record UserImportRejectionDto(
+        long lineNumber,
+        String reason
+) {
+}
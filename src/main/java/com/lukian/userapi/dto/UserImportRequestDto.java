@@ -0,0 +1,19 @@
+package com.lukian.userapi.dto;
+
+import com.lukian.userapi.model.UserImportJob;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Points the import at a file which is already present on the server.
+ * <p>
+ * The path is resolved against the configured import directory
+ * and must not leave it.
+ */
+public record UserImportRequestDto(
+        @NotBlank
+        String path,
+        @NotNull
+        UserImportJob.Format format
+) {
+}
@@ -0,0 +1,17 @@
+package com.lukian.userapi.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Ids of the users to fetch at once, at most {@value #MAX_IDS} per request.
+ */
+public record UserLookupRequestDto(
+        @NotEmpty
+        @Size(max = UserLookupRequestDto.MAX_IDS)
+        List<@NotNull Long> ids
+) {
+    public static final int MAX_IDS = 1000;
+}
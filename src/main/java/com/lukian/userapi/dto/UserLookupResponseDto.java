@@ -0,0 +1,15 @@
+package com.lukian.userapi.dto;
+
+import java.util.List;
+
+/**
+ * Result of the multi-get.
+ * <p>
+ * {@code users} are in the order of the requested ids (every id once),
+ * and {@code missing} lists the ids without an active user, in the same order.
+ */
+public record UserLookupResponseDto(
+        List<UserResponseDto> users,
+        List<Long> missing
+) {
+}
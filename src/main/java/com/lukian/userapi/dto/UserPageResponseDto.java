@@ -0,0 +1,16 @@
+package com.lukian.userapi.dto;
+
+import java.util.List;
+
+/**
+ * One page of users ordered by birth date and id.
+ * <p>
+ * The {@code next} field holds an opaque cursor which should be passed back
+ * as {@code cursor} request parameter to get the following page.
+ * It is {@code null} when there are no more users in the requested range.
+ */
+public record UserPageResponseDto(
+        List<UserResponseDto> users,
+        String next
+) {
+}
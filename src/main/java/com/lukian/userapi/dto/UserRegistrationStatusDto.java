@@ -0,0 +1,22 @@
+package com.lukian.userapi.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a queued registration.
+ * <p>
+ * {@code user} holds the registered user once the registration is written,
+ * and {@code errors} the reasons why it was rejected.
+ */
+public record UserRegistrationStatusDto(
+        String trackingId,
+        Status status,
+        UserResponseDto user,
+        List<String> errors
+) {
+    public enum Status {
+        QUEUED,
+        REGISTERED,
+        REJECTED
+    }
+}
@@ -1,5 +1,6 @@
 package com.lukian.userapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDate;
 
 public record UserResponseDto(
@@ -9,6 +10,8 @@ public record UserResponseDto(
         String lastName,
         LocalDate birthDate,
         String address,
-        String phoneNumber
+        String phoneNumber,
+        @JsonIgnore
+        Long version
 ) {
 }
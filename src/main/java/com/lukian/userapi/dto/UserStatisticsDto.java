@@ -0,0 +1,17 @@
+package com.lukian.userapi.dto;
+
+import java.util.Map;
+
+/**
+ * Distribution of users.
+ * <p>
+ * {@code byBirthYear} and {@code byAgeBucket} count active users only and are
+ * ordered ascending; age buckets are named by their inclusive bounds, e.g. {@code 20-29}.
+ */
+public record UserStatisticsDto(
+        long active,
+        long deleted,
+        Map<Integer, Long> byBirthYear,
+        Map<String, Long> byAgeBucket
+) {
+}
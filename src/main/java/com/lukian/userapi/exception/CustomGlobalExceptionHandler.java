@@ -1,23 +1,40 @@
 package com.lukian.userapi.exception;
 
+import com.lukian.userapi.dto.ErrorResponseDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+/**
+ * Turns exceptions into error responses.
+ * <p>
+ * Every rejected request field or parameter is counted in
+ * {@value #VALIDATION_FAILURES_METRIC}, tagged with its name, so dashboards show
+ * which inputs clients get wrong.
+ */
 @ControllerAdvice
+@RequiredArgsConstructor
 public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler {
+    public static final String VALIDATION_FAILURES_METRIC = "user.validation.failures";
+    private final MeterRegistry meterRegistry;
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex,
@@ -28,6 +45,10 @@ public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler
         Map<String,Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", HttpStatus.BAD_REQUEST);
+        ex.getBindingResult().getFieldErrors()
+                .forEach(error -> countValidationFailure(error.getField()));
+        ex.getBindingResult().getGlobalErrors()
+                .forEach(error -> countValidationFailure(error.getObjectName()));
         List<String> errors = ex.getBindingResult().getAllErrors().stream()
                 .map(this::getErrorMessage)
                 .toList();
@@ -35,6 +56,26 @@ public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler
         return new ResponseEntity<>(body, headers, status);
     }
 
+    @Override
+    protected ResponseEntity<Object> handleHandlerMethodValidationException(
+            HandlerMethodValidationException ex,
+            HttpHeaders headers,
+            HttpStatusCode status,
+            WebRequest request
+    ) {
+        ex.getAllValidationResults().forEach(result -> countValidationFailure(
+                result.getMethodParameter().getParameterName()));
+        return super.handleHandlerMethodValidationException(ex, headers, status, request);
+    }
+
+    private void countValidationFailure(String field) {
+        Counter.builder(VALIDATION_FAILURES_METRIC)
+                .description("Request fields and parameters rejected by validation")
+                .tag("field", String.valueOf(field))
+                .register(meterRegistry)
+                .increment();
+    }
+
     private String getErrorMessage(ObjectError e) {
         if (e instanceof FieldError fieldError) {
             String field = fieldError.getField();
@@ -53,4 +94,52 @@ public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler
         body.put("errors", errorMessage);
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Object> handleInvalidCursorException(InvalidCursorException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.BAD_REQUEST);
+        body.put("errors", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ImportException.class)
+    public ResponseEntity<Object> handleImportException(ImportException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.BAD_REQUEST);
+        body.put("errors", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Answers expected failures (missing users, conflicts, failed preconditions)
+     * with their status and message, without logging them.
+     */
+    @ExceptionHandler(UserApiException.class)
+    public ResponseEntity<ErrorResponseDto> handleUserApiException(UserApiException ex) {
+        return ResponseEntity.status(ex.getStatus())
+                .body(new ErrorResponseDto(LocalDateTime.now(), ex.getStatus(), ex.getMessage()));
+    }
+
+    @ExceptionHandler(RegistrationQueueFullException.class)
+    public ResponseEntity<ErrorResponseDto> handleRegistrationQueueFullException(
+            RegistrationQueueFullException ex) {
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new ErrorResponseDto(LocalDateTime.now(), ex.getStatus(), ex.getMessage()));
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLockingFailureException(
+            ObjectOptimisticLockingFailureException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT);
+        body.put("errors", "User with id: " + ex.getIdentifier()
+                + " was modified concurrently, fetch it and retry");
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
 }
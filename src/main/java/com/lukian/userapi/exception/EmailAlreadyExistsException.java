@@ -0,0 +1,14 @@
+package com.lukian.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class EmailAlreadyExistsException extends UserApiException {
+    public EmailAlreadyExistsException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
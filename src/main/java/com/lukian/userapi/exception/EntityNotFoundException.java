@@ -0,0 +1,14 @@
+package com.lukian.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class EntityNotFoundException extends UserApiException {
+    public EntityNotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
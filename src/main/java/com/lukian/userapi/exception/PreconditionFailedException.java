@@ -0,0 +1,14 @@
+package com.lukian.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PreconditionFailedException extends UserApiException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+}
@@ -0,0 +1,24 @@
+package com.lukian.userapi.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The registration queue cannot take more registrations; the client should retry
+ * after {@link #getRetryAfter()}.
+ */
+@Getter
+public class RegistrationQueueFullException extends UserApiException {
+    private final Duration retryAfter;
+
+    public RegistrationQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,18 @@
+package com.lukian.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Expected failure of a request, answered with {@link #getStatus()} and the message.
+ * <p>
+ * Such failures are caused by clients (e.g. scanners probing random ids) and are answered
+ * without logging, so neither the stack trace nor suppressed exceptions are recorded:
+ * filling in the stack trace of a request thread costs more than handling the rest of it.
+ */
+public abstract class UserApiException extends RuntimeException {
+    protected UserApiException(String message) {
+        super(message, null, false, false);
+    }
+
+    public abstract HttpStatus getStatus();
+}
@@ -0,0 +1,324 @@
+package com.lukian.userapi.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.util.RequestUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Processes a write sent with the {@value #IDEMPOTENCY_KEY_HEADER} header once, and replays
+ * its response to every retry with the same key, so a client retrying a timed out
+ * registration gets the user it registered instead of a duplicate email conflict.
+ * <p>
+ * Keys are per client (told apart by {@link RequestUtil#getClient}) and kept in the
+ * {@link IdempotencyStore}. A retry which arrives while the first request is still processed
+ * waits for it on this instance for up to {@code waitTimeout}, otherwise it gets 409 with
+ * {@code Retry-After}. A key reused with another method, path, body or {@code Prefer} header,
+ * which chooses between a registration and a queued one, gets 422. Responses
+ * with 5xx statuses are not kept, so such requests may be retried with the same key.
+ * Bodies larger than {@code maximumBodySize}, e.g. of big batch registrations, are not kept
+ * either: their retries get the status and headers only.
+ * Outcomes are counted in {@value #REQUESTS_METRIC}, tagged with {@code outcome}.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String REQUESTS_METRIC = "user.idempotency.requests";
+    private static final String LOOKUP_PATH = "/api/users/lookup";
+    private static final String IMPORTS_PATH = "/api/users/imports";
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(),
+            HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+    private static final Duration IN_PROGRESS_RETRY_AFTER = Duration.ofSeconds(1);
+    private final IdempotencyStore store;
+    private final Duration waitTimeout;
+    private final long maximumBodySize;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, CompletableFuture<Void>> executions =
+            new ConcurrentHashMap<>();
+    private final Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+
+    public IdempotencyFilter(IdempotencyStore store, Duration waitTimeout, long maximumBodySize,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+        this.maximumBodySize = maximumBodySize;
+        this.objectMapper = objectMapper;
+        for (Outcome outcome : Outcome.values()) {
+            counters.put(outcome, Counter.builder(REQUESTS_METRIC)
+                    .description("Requests with an idempotency key by outcome")
+                    .tag("outcome", outcome.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Only writes of the user endpoints with a key are handled; file imports
+     * are excluded, as their body would be buffered.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = getPath(request);
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || READ_METHODS.contains(request.getMethod())
+                || LOOKUP_PATH.equals(path)
+                || path.startsWith(IMPORTS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        BufferedRequest bufferedRequest = new BufferedRequest(request);
+        String key = hash(new byte[0], RequestUtil.getClient(request),
+                request.getHeader(IDEMPOTENCY_KEY_HEADER));
+        String prefer = request.getHeader(RequestUtil.PREFER_HEADER);
+        String fingerprint = hash(bufferedRequest.body, request.getMethod(), getPath(request),
+                prefer == null ? "" : prefer);
+        while (true) {
+            CompletableFuture<Void> execution = new CompletableFuture<>();
+            CompletableFuture<Void> running = executions.putIfAbsent(key, execution);
+            if (running == null) {
+                try {
+                    Optional<IdempotencyStore.Claim> claim = store.claim(key, fingerprint);
+                    if (claim.isEmpty()) {
+                        execute(key, bufferedRequest, response, filterChain);
+                    } else {
+                        respond(claim.get(), fingerprint, response);
+                    }
+                } finally {
+                    executions.remove(key, execution);
+                    execution.complete(null);
+                }
+                return;
+            }
+            if (!await(running)) {
+                counters.get(Outcome.IN_PROGRESS).increment();
+                reject(response, HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is in progress, retry later");
+                return;
+            }
+        }
+    }
+
+    private void execute(String key, BufferedRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        counters.get(Outcome.EXECUTED).increment();
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            int status = cachingResponse.getStatus();
+            if (status < HttpStatus.INTERNAL_SERVER_ERROR.value() && !request.isAsyncStarted()) {
+                boolean keepBody = cachingResponse.getContentSize() <= maximumBodySize;
+                store.complete(key, new IdempotentResponse(status,
+                        keepBody ? cachingResponse.getContentType() : null,
+                        cachingResponse.getHeader(HttpHeaders.ETAG),
+                        cachingResponse.getHeader(HttpHeaders.LOCATION),
+                        cachingResponse.getHeader(
+                                RequestUtil.PREFERENCE_APPLIED_HEADER),
+                        keepBody ? cachingResponse.getContentAsByteArray() : new byte[0]));
+                completed = true;
+            }
+            cachingResponse.copyBodyToResponse();
+        } finally {
+            if (!completed) {
+                store.release(key);
+            }
+        }
+    }
+
+    private void respond(IdempotencyStore.Claim claim, String fingerprint,
+                         HttpServletResponse response) throws IOException {
+        if (!claim.fingerprint().equals(fingerprint)) {
+            counters.get(Outcome.MISMATCHED).increment();
+            reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for another request");
+        } else if (claim.response() == null) {
+            counters.get(Outcome.IN_PROGRESS).increment();
+            reject(response, HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is in progress, retry later");
+        } else {
+            counters.get(Outcome.REPLAYED).increment();
+            IdempotentResponse replayed = claim.response();
+            response.setStatus(replayed.status());
+            if (replayed.contentType() != null) {
+                response.setContentType(replayed.contentType());
+            }
+            if (replayed.etag() != null) {
+                response.setHeader(HttpHeaders.ETAG, replayed.etag());
+            }
+            if (replayed.location() != null) {
+                response.setHeader(HttpHeaders.LOCATION, replayed.location());
+            }
+            if (replayed.preferenceApplied() != null) {
+                response.setHeader(RequestUtil.PREFERENCE_APPLIED_HEADER,
+                        replayed.preferenceApplied());
+            }
+            response.setHeader(REPLAYED_HEADER, Boolean.TRUE.toString());
+            response.setContentLength(replayed.body().length);
+            response.getOutputStream().write(replayed.body());
+        }
+    }
+
+    /**
+     * Waits for the request with the same key processed on this instance.
+     *
+     * @return whether it completed within the wait timeout
+     */
+    private boolean await(CompletableFuture<Void> running) {
+        try {
+            running.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String error)
+            throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status);
+        body.put("errors", error);
+        response.setStatus(status.value());
+        if (status == HttpStatus.CONFLICT) {
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(IN_PROGRESS_RETRY_AFTER.toSeconds()));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private String getPath(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * SHA-256 of the parts and the body, so keys and fingerprints have a fixed length
+     * however long the client, the key or the body are.
+     */
+    private String hash(byte[] body, String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    @Getter
+    public enum Outcome {
+        EXECUTED,
+        REPLAYED,
+        IN_PROGRESS,
+        MISMATCHED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Request with the body read upfront, as it is part of the fingerprint.
+     */
+    private static class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private BufferedRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * Calls the listener right away, as the whole body is already buffered.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return inputStream.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8.name() : encoding));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.lukian.userapi.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Keeps the requests made with an {@code Idempotency-Key} and their responses
+ * until the key expires.
+ * <p>
+ * A key is claimed before its request is processed, so of the duplicates arriving
+ * at the same time (on any instance sharing the store) only the first one is processed.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a request unless it is already claimed.
+     *
+     * @param key idempotency key of the client
+     * @param fingerprint hash of the request, to tell a retry from a reused key
+     * @return empty if the key is claimed by this call, otherwise the existing claim
+     */
+    Optional<Claim> claim(String key, String fingerprint);
+
+    /**
+     * Stores the response of the request which claimed the key, to be replayed
+     * to its retries until the key expires.
+     */
+    void complete(String key, IdempotentResponse response);
+
+    /**
+     * Drops the claim of a request which failed, so it may be retried with the same key.
+     */
+    void release(String key);
+
+    /**
+     * @param fingerprint hash of the request which claimed the key
+     * @param response response to replay, {@code null} while the request is processed
+     */
+    record Claim(String fingerprint, IdempotentResponse response) {
+    }
+}
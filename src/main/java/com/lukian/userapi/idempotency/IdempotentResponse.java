@@ -0,0 +1,22 @@
+package com.lukian.userapi.idempotency;
+
+/**
+ * Response of a request made with an {@code Idempotency-Key}, as replayed to its retries:
+ * the status, the body and the headers the write endpoints set.
+ *
+ * @param status HTTP status
+ * @param contentType {@code Content-Type} header, if any
+ * @param etag {@code ETag} header, if any
+ * @param location {@code Location} header, if any
+ * @param preferenceApplied {@code Preference-Applied} header, if any
+ * @param body response body
+ */
+public record IdempotentResponse(
+        int status,
+        String contentType,
+        String etag,
+        String location,
+        String preferenceApplied,
+        byte[] body
+) {
+}
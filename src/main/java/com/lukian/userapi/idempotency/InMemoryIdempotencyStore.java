@@ -0,0 +1,53 @@
+package com.lukian.userapi.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Keeps the keys of this instance in memory, each for {@code timeToLive} after
+ * it is claimed or completed. The store is bounded by {@code maximumWeight} bytes,
+ * an estimate of the kept responses and the key, so a few large responses
+ * cannot take more memory than many small ones.
+ * <p>
+ * Retries reaching another instance are not recognized; use {@link JdbcIdempotencyStore}
+ * when more than one instance serves the API.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    /**
+     * Estimated bytes of a claim apart from the response body: the hashed key and
+     * fingerprint, the headers and the objects holding them.
+     */
+    private static final int CLAIM_WEIGHT = 512;
+    private final Cache<String, Claim> claims;
+
+    public InMemoryIdempotencyStore(long maximumWeight, Duration timeToLive) {
+        this.claims = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(InMemoryIdempotencyStore::weigh)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    @Override
+    public Optional<Claim> claim(String key, String fingerprint) {
+        return Optional.ofNullable(claims.asMap().putIfAbsent(key, new Claim(fingerprint, null)));
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        claims.asMap().computeIfPresent(key,
+                (k, claim) -> new Claim(claim.fingerprint(), response));
+    }
+
+    @Override
+    public void release(String key) {
+        claims.invalidate(key);
+    }
+
+    private static int weigh(String key, Claim claim) {
+        IdempotentResponse response = claim.response();
+        return CLAIM_WEIGHT + (response == null ? 0 : response.body().length);
+    }
+}
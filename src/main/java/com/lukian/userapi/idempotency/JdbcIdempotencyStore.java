@@ -0,0 +1,89 @@
+package com.lukian.userapi.idempotency;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Keeps the keys in the idempotency_keys table, shared by all instances, for
+ * {@code timeToLive} after they are claimed; the primary key on the idempotency key
+ * lets only one instance claim it.
+ * <p>
+ * Expired keys are ignored right away and deleted every {@code user.idempotency.purge-interval}.
+ * A key claimed by an instance which stopped before completing its request stays claimed
+ * until it expires.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Duration timeToLive, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<Claim> claim(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        jdbcTemplate.update("DELETE FROM idempotency_keys "
+                + "WHERE idempotency_key = ? AND created_at < ?", key, now.minus(timeToLive));
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_keys "
+                    + "(idempotency_key, fingerprint, created_at) VALUES (?, ?, ?)",
+                    key, fingerprint, now);
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            List<Claim> claims = jdbcTemplate.query("SELECT fingerprint, status, content_type, "
+                    + "etag, location, preference_applied, body "
+                    + "FROM idempotency_keys WHERE idempotency_key = ?",
+                    this::mapClaim, key);
+            // released in the meantime, the client is told to retry as if it was in progress
+            return Optional.of(claims.isEmpty() ? new Claim(fingerprint, null) : claims.get(0));
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, content_type = ?, etag = ?, "
+                + "location = ?, preference_applied = ?, body = ? WHERE idempotency_key = ?",
+                response.status(), response.contentType(), response.etag(), response.location(),
+                response.preferenceApplied(), response.body(), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ?", key);
+    }
+
+    /**
+     * Deletes all expired keys.
+     *
+     * @return number of deleted keys
+     */
+    @Scheduled(initialDelayString = "${user.idempotency.purge-interval}",
+            fixedDelayString = "${user.idempotency.purge-interval}")
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?",
+                LocalDateTime.now(clock).minus(timeToLive));
+    }
+
+    private Claim mapClaim(ResultSet resultSet, int rowNum) throws SQLException {
+        int status = resultSet.getInt("status");
+        if (resultSet.wasNull()) {
+            return new Claim(resultSet.getString("fingerprint"), null);
+        }
+        return new Claim(resultSet.getString("fingerprint"), new IdempotentResponse(status,
+                resultSet.getString("content_type"), resultSet.getString("etag"),
+                resultSet.getString("location"), resultSet.getString("preference_applied"),
+                resultSet.getBytes("body")));
+    }
+}
@@ -0,0 +1,18 @@
+package com.lukian.userapi.mapper;
+
+import com.lukian.userapi.config.MapperConfig;
+import com.lukian.userapi.dto.UserImportJobResponseDto;
+import com.lukian.userapi.dto.UserImportRejectionDto;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.model.UserImportRejection;
+import org.mapstruct.Mapper;
+import org.springframework.stereotype.Component;
+
+@Mapper(config = MapperConfig.class)
+@Component
+public interface UserImportMapper {
+
+    UserImportJobResponseDto toDto(UserImportJob job);
+
+    UserImportRejectionDto toDto(UserImportRejection rejection);
+}
@@ -1,25 +1,63 @@
 package com.lukian.userapi.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
+/**
+ * Kept in the {@value #CACHE_REGION} second-level cache region. The {@code @Where}
+ * filter does not apply to cache hits, so a deleted user must never stay cached:
+ * {@code @SQLDelete} evicts the deleted user only, while every bulk UPDATE or DELETE
+ * on the users table (e.g. the soft delete and email change in {@code UserRepository})
+ * makes Hibernate evict the whole region.
+ */
 @Entity
-@SQLDelete(sql = "UPDATE users SET is_deleted = true WHERE id = ?")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@SQLDelete(sql = "UPDATE users SET is_deleted = true, deleted_at = CURRENT_TIMESTAMP, "
+        + "version = version + 1 WHERE id = ? AND version = ?")
 @Where(clause = "is_deleted=false")
 @Table(name = "users")
 @Data
 public class User {
+    public static final String CACHE_REGION = "users";
+    /**
+     * Ids are taken from the id_generator table (which stores the last used id)
+     * in blocks of {@code allocationSize}, so Hibernate knows them before INSERT
+     * and can batch the statements (IDENTITY would force a separate INSERT per row).
+     * This also keeps ids unique when users is partitioned by birth date and its
+     * primary key becomes (id, birth_date).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id_generator")
+    @TableGenerator(name = "users_id_generator",
+            table = "id_generator",
+            pkColumnName = "sequence_name",
+            valueColumnName = "next_val",
+            pkColumnValue = "users",
+            allocationSize = 100)
     private Long id;
+    /**
+     * Unique through the users index, or the user_emails table (kept by triggers)
+     * when users is partitioned, as a partitioned table can only have unique keys
+     * which include the birth date.
+     */
     @Column(name = "email",
             unique = true,
             nullable = false)
@@ -30,6 +68,14 @@ public class User {
     private String lastName;
     @Column(name = "birth_date", nullable = false)
     private LocalDate birthDate;
+    /**
+     * Generated by the database from the birth date and mapped only to be queried,
+     * so it is never written nor exposed (it is null until the user is reloaded).
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "birth_month_day", insertable = false, updatable = false)
+    private Short birthMonthDay;
     @Column(name = "address")
     private String address;
     @Column(name = "phone_number")
@@ -37,4 +83,19 @@ public class User {
     @Column(name = "is_deleted",
             nullable = false)
     private Boolean isDeleted = false;
+    /**
+     * Set by DB when the user is soft-deleted and only mapped to be written by bulk
+     * updates; soft-deleted users are moved to users_archive once it is old enough.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+    /**
+     * Left null for new users, so Spring Data still persists them without a merge;
+     * Hibernate sets it to 0 on INSERT and checks and increments it on every UPDATE.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
@@ -0,0 +1,61 @@
+package com.lukian.userapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+@Entity
+@Table(name = "user_import_jobs")
+@Data
+public class UserImportJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "source", nullable = false)
+    private String source;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false)
+    private Format format;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+    /**
+     * Number of file lines (header included) covered by committed chunks.
+     * A resumed job skips exactly this many lines.
+     */
+    @Column(name = "processed_lines", nullable = false)
+    private long processedLines;
+    @Column(name = "imported_rows", nullable = false)
+    private long importedRows;
+    @Column(name = "rejected_rows", nullable = false)
+    private long rejectedRows;
+    @Column(name = "error_message")
+    private String errorMessage;
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,24 @@
+package com.lukian.userapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Table(name = "user_import_rejections")
+@Data
+public class UserImportRejection {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+    @Column(name = "line_number", nullable = false)
+    private long lineNumber;
+    @Column(name = "reason", nullable = false)
+    private String reason;
+}
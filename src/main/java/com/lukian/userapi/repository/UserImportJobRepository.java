@@ -0,0 +1,30 @@
+package com.lukian.userapi.repository;
+
+import com.lukian.userapi.model.UserImportJob;
+import java.util.Collection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UserImportJobRepository extends JpaRepository<UserImportJob, Long> {
+
+    /**
+     * Moves all jobs in the given statuses to the new status.
+     *
+     * @param statuses The current statuses of the jobs.
+     * @param status The new status.
+     * @param errorMessage The error message to set.
+     * @return The number of updated jobs.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserImportJob j SET j.status = :status, j.errorMessage = :errorMessage "
+            + "WHERE j.status IN :statuses")
+    int updateStatusByStatusIn(@Param("statuses") Collection<UserImportJob.Status> statuses,
+                               @Param("status") UserImportJob.Status status,
+                               @Param("errorMessage") String errorMessage);
+}
@@ -0,0 +1,11 @@
+package com.lukian.userapi.repository;
+
+import com.lukian.userapi.model.UserImportRejection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserImportRejectionRepository extends JpaRepository<UserImportRejection, Long> {
+    List<UserImportRejection> findAllByJobIdOrderByLineNumber(Long jobId);
+}
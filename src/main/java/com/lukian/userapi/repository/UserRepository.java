@@ -1,13 +1,37 @@
 package com.lukian.userapi.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+import com.lukian.userapi.dto.UserResponseDto;
 import com.lukian.userapi.model.User;
+import com.lukian.userapi.statistics.BirthDateCount;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    String STREAM_FETCH_SIZE = "1000";
+    /**
+     * Selects active users straight into {@link UserResponseDto}: the rows become DTOs
+     * without being materialized as entities, registered in the persistence context
+     * and dirty-checked at flush, which read-only results never need.
+     */
+    String SELECT_DTO = "SELECT new com.lukian.userapi.dto.UserResponseDto(u.id, u.email, "
+            + "u.firstName, u.lastName, u.birthDate, u.address, u.phoneNumber, u.version) "
+            + "FROM User u ";
 
     /**
      * Retrieves user within chosen birthday range.
@@ -15,9 +39,234 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * Method is resource friendly since it fetches only those who fall within provided range,
      * without need to fetch all the users from DB, while using JPA query capabilities.
      *
+     * The result is not put into the query cache: whole lists of wide ranges would pin
+     * a lot of heap, and any write to the users table invalidates them anyway.
+     *
      * @param fromDate The starting date of the birthdate range.
      * @param toDate The ending date of the birthdate range.
      * @return A list of users whose birthdate falls within the specified range.
      */
-    List<User> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+    @Query(SELECT_DTO + "WHERE u.birthDate BETWEEN :fromDate AND :toDate")
+    List<UserResponseDto> findDtosByBirthDateBetween(@Param("fromDate") LocalDate fromDate,
+                                                     @Param("toDate") LocalDate toDate);
+
+    /**
+     * Streams users within chosen birthday range.
+     *
+     * Rows are pulled from the JDBC cursor in chunks of {@value #STREAM_FETCH_SIZE},
+     * and nothing is kept in the persistence context, so memory usage does not depend
+     * on the size of the range. Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param fromDate The starting date of the birthdate range.
+     * @param toDate The ending date of the birthdate range.
+     * @return A stream of users whose birthdate falls within the specified range.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SELECT_DTO + "WHERE u.birthDate BETWEEN :fromDate AND :toDate")
+    Stream<UserResponseDto> streamDtosByBirthDateBetween(@Param("fromDate") LocalDate fromDate,
+                                                         @Param("toDate") LocalDate toDate);
+
+    /**
+     * Retrieves users whose birthday (month and day, regardless of the year) falls
+     * within one of two ranges of {@code month * 100 + day} values, both inclusive.
+     *
+     * Matches the generated birth_month_day column, so every range is an index range scan
+     * instead of computing the month and day of every row. Two ranges are needed for
+     * a window which wraps around the end of the year; pass an empty range
+     * (from greater than to) as the second one otherwise. Users are ordered by the
+     * upcoming birthday: the first range before the second one, then by month-day and id.
+     *
+     * @param fromMonthDay The start of the first range.
+     * @param toMonthDay The end of the first range.
+     * @param wrappedFromMonthDay The start of the second range.
+     * @param wrappedToMonthDay The end of the second range.
+     * @return A list of active users with the birthday in one of the ranges.
+     */
+    @Query(SELECT_DTO + "WHERE (u.birthMonthDay BETWEEN :fromMonthDay AND :toMonthDay "
+            + "OR u.birthMonthDay BETWEEN :wrappedFromMonthDay AND :wrappedToMonthDay) "
+            + "ORDER BY CASE WHEN u.birthMonthDay >= :fromMonthDay THEN 0 ELSE 1 END, "
+            + "u.birthMonthDay, u.id")
+    List<UserResponseDto> findDtosByBirthMonthDayRanges(
+            @Param("fromMonthDay") int fromMonthDay,
+            @Param("toMonthDay") int toMonthDay,
+            @Param("wrappedFromMonthDay") int wrappedFromMonthDay,
+            @Param("wrappedToMonthDay") int wrappedToMonthDay);
+
+    /**
+     * Retrieves the first page of users within chosen birthday range.
+     *
+     * Users are ordered by birth date and id, which gives a stable order
+     * for the keyset pagination continued by {@link #findDtoPageAfter}.
+     *
+     * @param fromDate The starting date of the birthdate range.
+     * @param toDate The ending date of the birthdate range.
+     * @param limit The maximum number of users to return.
+     * @return A list of at most {@code limit} users.
+     */
+    @Query(SELECT_DTO + "WHERE u.birthDate BETWEEN :fromDate AND :toDate "
+            + "ORDER BY u.birthDate, u.id")
+    List<UserResponseDto> findDtoPageByBirthDateBetween(@Param("fromDate") LocalDate fromDate,
+                                                        @Param("toDate") LocalDate toDate,
+                                                        Limit limit);
+
+    /**
+     * Retrieves the page of users which follows the given (birth date, id) position.
+     *
+     * Seeks directly to the position instead of skipping rows with OFFSET,
+     * so every page costs the same as the first one.
+     *
+     * @param fromDate The starting date of the birthdate range.
+     * @param toDate The ending date of the birthdate range.
+     * @param lastBirthDate The birth date of the last user on the previous page.
+     * @param lastId The id of the last user on the previous page.
+     * @param limit The maximum number of users to return.
+     * @return A list of at most {@code limit} users.
+     */
+    @Query(SELECT_DTO + "WHERE u.birthDate BETWEEN :fromDate AND :toDate "
+            + "AND u.birthDate >= :lastBirthDate "
+            + "AND (u.birthDate > :lastBirthDate OR u.id > :lastId) "
+            + "ORDER BY u.birthDate, u.id")
+    List<UserResponseDto> findDtoPageAfter(@Param("fromDate") LocalDate fromDate,
+                                           @Param("toDate") LocalDate toDate,
+                                           @Param("lastBirthDate") LocalDate lastBirthDate,
+                                           @Param("lastId") Long lastId,
+                                           Limit limit);
+
+    /**
+     * Retrieves emails which are already taken, including soft-deleted users.
+     *
+     * Native query is used on purpose to bypass the soft-delete filter,
+     * since the unique email constraint covers deleted users as well.
+     *
+     * @param emails The emails to check.
+     * @return The emails which are present in DB.
+     */
+    @Query(value = "SELECT email FROM users WHERE email IN (:emails)", nativeQuery = true)
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Soft-deletes the active user with one UPDATE statement.
+     *
+     * Unlike {@link #deleteById}, the user is neither loaded nor managed;
+     * the returned row count tells whether an active user with the id
+     * (and the expected version, if any) existed.
+     *
+     * @param id The id of the user to delete.
+     * @param version The expected version, or null to delete any version.
+     * @return 1 if the user was deleted, 0 otherwise.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.isDeleted = true, u.deletedAt = CURRENT_TIMESTAMP, "
+            + "u.version = u.version + 1 WHERE u.id = :id AND u.isDeleted = false "
+            + "AND (:version IS NULL OR u.version = :version)")
+    int softDeleteById(@Param("id") Long id, @Param("version") Long version);
+
+    /**
+     * Changes the email of the active user with one UPDATE statement,
+     * without loading the user into the persistence context.
+     *
+     * The version is checked in the WHERE clause and incremented,
+     * the same way Hibernate does it for managed entities.
+     *
+     * @param id The id of the user to update.
+     * @param email The new email.
+     * @param version The expected version, or null to update any version.
+     * @return 1 if the user was updated, 0 otherwise.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.email = :email, u.version = u.version + 1 "
+            + "WHERE u.id = :id AND u.isDeleted = false "
+            + "AND (:version IS NULL OR u.version = :version)")
+    int updateEmailById(@Param("id") Long id, @Param("email") String email,
+                        @Param("version") Long version);
+
+    /**
+     * Reads the active user straight into the response DTO.
+     *
+     * @param id The id of the user.
+     * @return The user, if there is an active user with the id.
+     */
+    @Query(SELECT_DTO + "WHERE u.id = :id")
+    Optional<UserResponseDto> findDtoById(@Param("id") Long id);
+
+    /**
+     * Reads the active users with the given ids straight into response DTOs.
+     *
+     * Callers are expected to keep the number of ids bounded,
+     * since every id becomes a bind parameter of the IN list.
+     *
+     * @param ids The ids of the users.
+     * @return The users which exist and are active, in no particular order.
+     */
+    @Query(SELECT_DTO + "WHERE u.id IN :ids")
+    List<UserResponseDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Counts active users per birth date.
+     *
+     * Grouping by the leading columns of the soft-delete/birth date index
+     * lets DB answer from the index alone, without reading the rows.
+     *
+     * @return The number of active users for every birth date which has any.
+     */
+    @Query("SELECT new com.lukian.userapi.statistics.BirthDateCount(u.birthDate, COUNT(u)) "
+            + "FROM User u GROUP BY u.birthDate")
+    List<BirthDateCount> countActiveGroupedByBirthDate();
+
+    /**
+     * Counts soft-deleted users; native query is used to bypass the soft-delete filter.
+     *
+     * @return The number of soft-deleted users.
+     */
+    @Query(value = "SELECT COUNT(*) FROM users WHERE is_deleted = true", nativeQuery = true)
+    long countDeleted();
+
+    /**
+     * Finds the next soft-deleted users to archive, in the order of ids.
+     *
+     * The (is_deleted, id) index is read from {@code afterId} on, so every batch of
+     * an archival run continues where the previous one stopped. The retention is
+     * measured by the DB clock, the same one which set deleted_at.
+     *
+     * @param afterId The last id of the previous batch, 0 for the first batch.
+     * @param retentionSeconds How long users stay soft-deleted before they are archived.
+     * @param limit The maximum number of ids to return.
+     * @return Ids of users soft-deleted earlier than the retention allows.
+     */
+    @Query(value = "SELECT id FROM users WHERE is_deleted = true AND id > :afterId "
+            + "AND deleted_at < TIMESTAMPADD(SECOND, -:retentionSeconds, CURRENT_TIMESTAMP) "
+            + "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findArchivableIds(@Param("afterId") long afterId,
+                                 @Param("retentionSeconds") long retentionSeconds,
+                                 @Param("limit") int limit);
+
+    /**
+     * Copies soft-deleted users to the users_archive table.
+     *
+     * @param ids The ids of the users to copy; active users are skipped.
+     * @return The number of copied users.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "users_archive"))
+    @Query(value = "INSERT INTO users_archive (id, email, first_name, last_name, birth_date, "
+            + "address, phone_number, version, deleted_at, archived_at) "
+            + "SELECT id, email, first_name, last_name, birth_date, address, phone_number, "
+            + "version, deleted_at, CURRENT_TIMESTAMP FROM users "
+            + "WHERE id IN (:ids) AND is_deleted = true", nativeQuery = true)
+    int copyDeletedToArchive(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes soft-deleted users from the table, which also frees their emails
+     * in the unique index.
+     *
+     * @param ids The ids of the users to remove; active users are skipped.
+     * @return The number of removed users.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "users"))
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) AND is_deleted = true",
+            nativeQuery = true)
+    int purgeDeletedByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,20 @@
+package com.lukian.userapi.service;
+
+import com.lukian.userapi.dto.UserImportJobResponseDto;
+import com.lukian.userapi.dto.UserImportRejectionDto;
+import com.lukian.userapi.dto.UserImportRequestDto;
+import com.lukian.userapi.model.UserImportJob;
+import java.util.List;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface UserImportService {
+    UserImportJobResponseDto importFile(MultipartFile file, UserImportJob.Format format);
+
+    UserImportJobResponseDto importFile(UserImportRequestDto requestDto);
+
+    UserImportJobResponseDto getJob(Long id);
+
+    List<UserImportRejectionDto> getRejections(Long id);
+
+    UserImportJobResponseDto resume(Long id);
+}
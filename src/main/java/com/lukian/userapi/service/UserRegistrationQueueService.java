@@ -0,0 +1,10 @@
+package com.lukian.userapi.service;
+
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
+
+public interface UserRegistrationQueueService {
+    UserRegistrationStatusDto enqueue(UserRegisterRequestDto requestDto);
+
+    UserRegistrationStatusDto getStatus(String trackingId);
+}
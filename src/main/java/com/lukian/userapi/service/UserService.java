@@ -1,19 +1,58 @@
 package com.lukian.userapi.service;
 
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
 import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.dto.UserLookupResponseDto;
+import com.lukian.userapi.dto.UserPageResponseDto;
 import com.lukian.userapi.dto.UserRegisterRequestDto;
 import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.dto.UserStatisticsDto;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserResponseDto save(UserRegisterRequestDto requestDto);
 
-    UserResponseDto updateUserEmailById(Long id, UpdateUserRequestDto requestDto);
+    /**
+     * Checks that the user is old enough to register.
+     *
+     * @param requestDto user to register
+     * @throws com.lukian.userapi.exception.RegistrationException if the user is too young
+     */
+    void validateAge(UserRegisterRequestDto requestDto);
 
-    UserResponseDto updateUserDataById(Long id, UserRegisterRequestDto requestDto);
+    /**
+     * Checks that no user, including a soft-deleted one, is registered with the email.
+     *
+     * @param email email of the user to register
+     * @throws com.lukian.userapi.exception.EmailAlreadyExistsException if the email is taken
+     */
+    void validateEmailAvailable(String email);
 
-    void deleteById(Long id);
+    UserResponseDto getById(Long id);
+
+    UserLookupResponseDto getAllByIds(List<Long> ids);
+
+    BatchRegistrationResponseDto saveAll(List<UserRegisterRequestDto> requestDtos);
+
+    UserResponseDto updateUserEmailById(Long id, UpdateUserRequestDto requestDto,
+                                        Long expectedVersion);
+
+    UserResponseDto updateUserDataById(Long id, UserRegisterRequestDto requestDto,
+                                       Long expectedVersion);
+
+    void deleteById(Long id, Long expectedVersion);
 
     List<UserResponseDto> searchByBirthDateRange(LocalDate fromDate, LocalDate toDate);
+
+    UserPageResponseDto searchByBirthDateRange(LocalDate fromDate, LocalDate toDate,
+                                               String cursor, int limit);
+
+    List<UserResponseDto> searchUpcomingBirthdays(LocalDate fromDate, int days);
+
+    UserStatisticsDto getStatistics();
+
+    void streamByBirthDateRange(LocalDate fromDate, LocalDate toDate,
+                                Consumer<UserResponseDto> consumer);
 }
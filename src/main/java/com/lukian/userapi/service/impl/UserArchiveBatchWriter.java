@@ -0,0 +1,37 @@
+package com.lukian.userapi.service.impl;
+
+import com.lukian.userapi.repository.UserRepository;
+import com.lukian.userapi.statistics.UserStatistics;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@RequiredArgsConstructor
+public class UserArchiveBatchWriter {
+    private final UserRepository userRepository;
+    private final UserStatistics userStatistics;
+
+    /**
+     * Moves one batch of soft-deleted users to users_archive.
+     *
+     * The copy and the removal happen in one short transaction, so the rows are
+     * locked only for the two statements and a user is never lost nor left in both
+     * tables; if the counts differ, the batch is rolled back.
+     *
+     * @param ids ids of soft-deleted users
+     * @return number of archived users
+     */
+    @Transactional
+    public int archive(List<Long> ids) {
+        int copied = userRepository.copyDeletedToArchive(ids);
+        int purged = userRepository.purgeDeletedByIdIn(ids);
+        if (copied != purged) {
+            throw new IllegalStateException("Archived " + copied + " users but removed "
+                    + purged + " of them, rolling back the batch");
+        }
+        userStatistics.usersArchived(purged);
+        return purged;
+    }
+}
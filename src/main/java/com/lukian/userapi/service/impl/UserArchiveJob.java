@@ -0,0 +1,72 @@
+package com.lukian.userapi.service.impl;
+
+import com.lukian.userapi.repository.UserRepository;
+import java.time.Duration;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves users soft-deleted longer than {@code user.archive.retention} ago from users
+ * to users_archive, so they no longer take space in the table and its indexes,
+ * and their emails can be registered again.
+ * <p>
+ * Users are archived in batches of {@code user.archive.batch-size}, each in its own
+ * transaction, with a {@code user.archive.pause} between them to leave the DB to the
+ * regular traffic. Batches are found by id (keyset), so a run reads every soft-deleted
+ * user once however many batches it takes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.archive.enabled", havingValue = "true")
+public class UserArchiveJob {
+    private final UserRepository userRepository;
+    private final UserArchiveBatchWriter batchWriter;
+    @Value("${user.archive.retention}")
+    private Duration retention;
+    @Value("${user.archive.batch-size}")
+    private int batchSize;
+    @Value("${user.archive.pause}")
+    private Duration pause;
+
+    /**
+     * Archives all users whose retention has passed.
+     *
+     * @return number of archived users
+     */
+    @Scheduled(initialDelayString = "${user.archive.interval}",
+            fixedDelayString = "${user.archive.interval}")
+    public long archive() {
+        long archived = 0;
+        long afterId = 0;
+        List<Long> ids = userRepository.findArchivableIds(afterId, retention.toSeconds(),
+                batchSize);
+        while (!ids.isEmpty()) {
+            archived += batchWriter.archive(ids);
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize || !pause()) {
+                break;
+            }
+            ids = userRepository.findArchivableIds(afterId, retention.toSeconds(), batchSize);
+        }
+        if (archived > 0) {
+            log.info("Archived {} soft-deleted users", archived);
+        }
+        return archived;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
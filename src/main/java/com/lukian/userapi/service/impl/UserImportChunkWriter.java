@@ -0,0 +1,85 @@
+package com.lukian.userapi.service.impl;
+
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.model.UserImportRejection;
+import com.lukian.userapi.repository.UserImportJobRepository;
+import com.lukian.userapi.repository.UserImportRejectionRepository;
+import com.lukian.userapi.service.UserService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+@Component
+@RequiredArgsConstructor
+public class UserImportChunkWriter {
+    private static final String REASON_SEPARATOR = "; ";
+    private static final int MAX_REASON_LENGTH = 1000;
+    private final UserService userService;
+    private final UserImportJobRepository jobRepository;
+    private final UserImportRejectionRepository rejectionRepository;
+    @Value("${user.import.max-stored-rejections}")
+    private long maxStoredRejections;
+
+    /**
+     * Registers the users of one chunk and moves the job progress forward.
+     *
+     * Both happen in one transaction, so after a failure the job is resumed
+     * exactly after the last chunk whose users were committed.
+     * Only the first rejections of a job are stored; the rest are only counted.
+     *
+     * @param jobId id of the import job
+     * @param rows parsed lines of the chunk
+     * @param processedLines number of file lines covered by this and previous chunks
+     */
+    @Transactional
+    public void write(Long jobId, List<UserImportRow> rows, long processedLines) {
+        List<UserImportRow> parsedRows = rows.stream()
+                .filter(row -> row.error() == null)
+                .toList();
+        BatchRegistrationResponseDto result = userService.saveAll(parsedRows.stream()
+                .map(UserImportRow::user)
+                .toList());
+
+        List<UserImportRejection> rejections = new ArrayList<>();
+        rows.stream()
+                .filter(row -> row.error() != null)
+                .forEach(row -> rejections.add(
+                        createRejection(jobId, row.lineNumber(), row.error())));
+        for (int i = 0; i < parsedRows.size(); i++) {
+            BatchRegistrationItemDto item = result.items().get(i);
+            if (item.user() == null) {
+                rejections.add(createRejection(jobId, parsedRows.get(i).lineNumber(),
+                        StringUtils.truncate(String.join(REASON_SEPARATOR, item.errors()),
+                                MAX_REASON_LENGTH)));
+            }
+        }
+        rejections.sort(Comparator.comparingLong(UserImportRejection::getLineNumber));
+
+        UserImportJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Cannot find import job by id: " + jobId));
+        long freeSlots = Math.max(0, maxStoredRejections - job.getRejectedRows());
+        rejectionRepository.saveAll(
+                rejections.subList(0, (int) Math.min(freeSlots, rejections.size())));
+        job.setProcessedLines(processedLines);
+        job.setImportedRows(job.getImportedRows() + result.created());
+        job.setRejectedRows(job.getRejectedRows() + rejections.size());
+        jobRepository.save(job);
+    }
+
+    private UserImportRejection createRejection(Long jobId, long lineNumber, String reason) {
+        UserImportRejection rejection = new UserImportRejection();
+        rejection.setJobId(jobId);
+        rejection.setLineNumber(lineNumber);
+        rejection.setReason(reason);
+        return rejection;
+    }
+}
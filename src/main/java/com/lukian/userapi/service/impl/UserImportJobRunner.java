@@ -0,0 +1,200 @@
+package com.lukian.userapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.ImportException;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.repository.UserImportJobRepository;
+import com.lukian.userapi.validation.email.CustomEmailValidator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads an import file line by line and hands it over to {@link UserImportChunkWriter}
+ * in chunks, so only one chunk is held in memory however big the file is.
+ * <p>
+ * CSV files must start with a header naming the {@link UserRegisterRequestDto} fields
+ * (in any order); quoted values may contain commas but not line breaks.
+ * NDJSON files hold one {@link UserRegisterRequestDto} per line.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserImportJobRunner {
+    private static final List<String> CSV_COLUMNS = List.of(
+            "email", "firstName", "lastName", "birthDate", "address", "phoneNumber");
+    private static final char CSV_SEPARATOR = ',';
+    private static final char CSV_QUOTE = '"';
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private final UserImportJobRepository jobRepository;
+    private final UserImportChunkWriter chunkWriter;
+    private final ObjectMapper objectMapper;
+    private final CustomEmailValidator emailValidator = new CustomEmailValidator();
+    @Value("${user.import.chunk-size}")
+    private int chunkSize;
+
+    @Async("userImportExecutor")
+    public void run(Long jobId) {
+        UserImportJob job = updateStatus(jobId, UserImportJob.Status.RUNNING, null);
+        try (BufferedReader reader = Files.newBufferedReader(
+                Path.of(job.getSource()), StandardCharsets.UTF_8)) {
+            process(job, reader);
+            updateStatus(jobId, UserImportJob.Status.COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("User import job {} failed", jobId, e);
+            updateStatus(jobId, UserImportJob.Status.FAILED,
+                    StringUtils.truncate(String.valueOf(e.getMessage()), MAX_MESSAGE_LENGTH));
+        }
+    }
+
+    private void process(UserImportJob job, BufferedReader reader) throws IOException {
+        long lineNumber = 0;
+        Map<String, Integer> columns = null;
+        if (job.getFormat() == UserImportJob.Format.CSV) {
+            columns = parseHeader(reader.readLine());
+            lineNumber++;
+        }
+        while (lineNumber < job.getProcessedLines() && reader.readLine() != null) {
+            lineNumber++;
+        }
+        long committedLines = lineNumber;
+        List<UserImportRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parseRow(job.getFormat(), columns, line, lineNumber));
+            if (chunk.size() == chunkSize) {
+                chunkWriter.write(job.getId(), chunk, lineNumber);
+                committedLines = lineNumber;
+                chunk.clear();
+            }
+        }
+        if (lineNumber > committedLines) {
+            chunkWriter.write(job.getId(), chunk, lineNumber);
+        }
+    }
+
+    private UserImportRow parseRow(UserImportJob.Format format, Map<String, Integer> columns,
+                                   String line, long lineNumber) {
+        UserRegisterRequestDto user;
+        try {
+            user = format == UserImportJob.Format.CSV
+                    ? parseCsvRow(columns, line)
+                    : objectMapper.readValue(line, UserRegisterRequestDto.class);
+        } catch (JsonProcessingException e) {
+            return createParseError(lineNumber, e.getOriginalMessage());
+        } catch (DateTimeParseException | ImportException e) {
+            return createParseError(lineNumber, e.getMessage());
+        }
+        if (user == null) {
+            // an NDJSON line "null" is valid JSON but no user
+            return createParseError(lineNumber, "expected a user object");
+        }
+        if (!emailValidator.isValid(user.email(), null)) {
+            return new UserImportRow(lineNumber, null, "email invalid email format");
+        }
+        return new UserImportRow(lineNumber, user, null);
+    }
+
+    private UserImportRow createParseError(long lineNumber, String message) {
+        return new UserImportRow(lineNumber, null, StringUtils.truncate(
+                "Cannot parse line: " + message, MAX_MESSAGE_LENGTH));
+    }
+
+    private Map<String, Integer> parseHeader(String header) {
+        if (header == null) {
+            throw new ImportException("CSV file must start with a header");
+        }
+        List<String> names = splitCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+            throw new ImportException("CSV header must contain columns " + CSV_COLUMNS);
+        }
+        return columns;
+    }
+
+    private UserRegisterRequestDto parseCsvRow(Map<String, Integer> columns, String line) {
+        List<String> values = splitCsvLine(line);
+        if (values.size() != columns.size()) {
+            throw new ImportException("expected " + columns.size()
+                    + " values but found " + values.size());
+        }
+        String birthDate = getCsvValue(values, columns, "birthDate");
+        return new UserRegisterRequestDto(
+                getCsvValue(values, columns, "email"),
+                getCsvValue(values, columns, "firstName"),
+                getCsvValue(values, columns, "lastName"),
+                birthDate == null ? null : LocalDate.parse(birthDate),
+                getCsvValue(values, columns, "address"),
+                getCsvValue(values, columns, "phoneNumber"));
+    }
+
+    private String getCsvValue(List<String> values, Map<String, Integer> columns, String name) {
+        String value = values.get(columns.get(name));
+        return value.isEmpty() ? null : value;
+    }
+
+    private List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == CSV_QUOTE && i + 1 < line.length() && line.charAt(i + 1) == CSV_QUOTE) {
+                    value.append(CSV_QUOTE);
+                    i++;
+                } else if (c == CSV_QUOTE) {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == CSV_QUOTE) {
+                quoted = true;
+            } else if (c == CSV_SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new ImportException("unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private UserImportJob updateStatus(Long jobId, UserImportJob.Status status,
+                                       String errorMessage) {
+        UserImportJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Cannot find import job by id: " + jobId));
+        job.setStatus(status);
+        job.setErrorMessage(errorMessage);
+        return jobRepository.save(job);
+    }
+}
@@ -0,0 +1,15 @@
+package com.lukian.userapi.service.impl;
+
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+
+/**
+ * Single parsed line of an import file.
+ * <p>
+ * Holds either the user to register or the reason why the line could not be parsed.
+ */
+public record UserImportRow(
+        long lineNumber,
+        UserRegisterRequestDto user,
+        String error
+) {
+}
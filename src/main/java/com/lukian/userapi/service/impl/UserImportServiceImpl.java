@@ -0,0 +1,132 @@
+package com.lukian.userapi.service.impl;
+
+import com.lukian.userapi.dto.UserImportJobResponseDto;
+import com.lukian.userapi.dto.UserImportRejectionDto;
+import com.lukian.userapi.dto.UserImportRequestDto;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.ImportException;
+import com.lukian.userapi.mapper.UserImportMapper;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.repository.UserImportJobRepository;
+import com.lukian.userapi.repository.UserImportRejectionRepository;
+import com.lukian.userapi.service.UserImportService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+@Service
+@RequiredArgsConstructor
+public class UserImportServiceImpl implements UserImportService {
+    private static final List<UserImportJob.Status> UNFINISHED_STATUSES =
+            List.of(UserImportJob.Status.QUEUED, UserImportJob.Status.RUNNING);
+    private final UserImportJobRepository jobRepository;
+    private final UserImportRejectionRepository rejectionRepository;
+    private final UserImportMapper importMapper;
+    private final UserImportJobRunner jobRunner;
+    @Value("${user.import.directory}")
+    private Path importDirectory;
+
+    /**
+     * Stores the uploaded file in the import directory and starts the job for it.
+     *
+     * The servlet container has already spooled the upload to disk,
+     * so the file is moved without being read into memory.
+     */
+    @Override
+    public UserImportJobResponseDto importFile(MultipartFile file, UserImportJob.Format format) {
+        try {
+            Path directory = Files.createDirectories(getImportDirectory());
+            Path source = directory.resolve(
+                    UUID.randomUUID() + "." + format.name().toLowerCase(Locale.ROOT));
+            file.transferTo(source);
+            return start(source, format);
+        } catch (IOException e) {
+            throw new ImportException("Cannot store uploaded file", e);
+        }
+    }
+
+    @Override
+    public UserImportJobResponseDto importFile(UserImportRequestDto requestDto) {
+        Path directory = getImportDirectory();
+        Path source = directory.resolve(requestDto.path()).normalize();
+        if (!source.startsWith(directory)) {
+            throw new ImportException(
+                    "File must be inside the import directory: " + requestDto.path());
+        }
+        if (!Files.isRegularFile(source)) {
+            throw new ImportException("Cannot find file: " + requestDto.path());
+        }
+        return start(source, requestDto.format());
+    }
+
+    @Override
+    public UserImportJobResponseDto getJob(Long id) {
+        return importMapper.toDto(getJobFromDb(id));
+    }
+
+    @Override
+    public List<UserImportRejectionDto> getRejections(Long id) {
+        getJobFromDb(id);
+        return rejectionRepository.findAllByJobIdOrderByLineNumber(id).stream()
+                .map(importMapper::toDto)
+                .toList();
+    }
+
+    /**
+     * Restarts a failed job; it continues after the last committed chunk.
+     */
+    @Override
+    public UserImportJobResponseDto resume(Long id) {
+        UserImportJob job = getJobFromDb(id);
+        if (job.getStatus() != UserImportJob.Status.FAILED) {
+            throw new ImportException("Only failed jobs can be resumed, job "
+                    + id + " is " + job.getStatus());
+        }
+        job.setStatus(UserImportJob.Status.QUEUED);
+        job.setErrorMessage(null);
+        UserImportJob savedJob = jobRepository.save(job);
+        jobRunner.run(savedJob.getId());
+        return importMapper.toDto(savedJob);
+    }
+
+    /**
+     * Jobs which were queued or running when the application stopped
+     * are marked as failed, so they can be resumed explicitly.
+     *
+     * Assumes that imports are run by a single application instance.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        jobRepository.updateStatusByStatusIn(UNFINISHED_STATUSES,
+                UserImportJob.Status.FAILED, "Interrupted by application shutdown");
+    }
+
+    private UserImportJobResponseDto start(Path source, UserImportJob.Format format) {
+        UserImportJob job = new UserImportJob();
+        job.setSource(source.toString());
+        job.setFormat(format);
+        job.setStatus(UserImportJob.Status.QUEUED);
+        UserImportJob savedJob = jobRepository.save(job);
+        jobRunner.run(savedJob.getId());
+        return importMapper.toDto(savedJob);
+    }
+
+    private Path getImportDirectory() {
+        return importDirectory.toAbsolutePath().normalize();
+    }
+
+    private UserImportJob getJobFromDb(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Cannot find import job by id: " + id));
+    }
+}
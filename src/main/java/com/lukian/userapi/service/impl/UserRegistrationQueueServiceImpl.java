@@ -0,0 +1,319 @@
+package com.lukian.userapi.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lukian.userapi.config.RegistrationQueueProperties;
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto.Status;
+import com.lukian.userapi.exception.EmailAlreadyExistsException;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.RegistrationException;
+import com.lukian.userapi.exception.RegistrationQueueFullException;
+import com.lukian.userapi.exception.UserApiException;
+import com.lukian.userapi.service.UserRegistrationQueueService;
+import com.lukian.userapi.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Registers users asynchronously: requests are checked right away and put into a bounded
+ * queue, which one writer thread drains in batches of up to
+ * {@code user.registration-queue.batch-size}, each registered in one transaction by
+ * {@link UserService#saveAll}, so a spike of registrations costs a few batched inserts
+ * instead of a commit per user.
+ * <p>
+ * An email is rejected right away when it is already in DB or a registration with it is
+ * queued; an email registered synchronously after that check is rejected when the batch is
+ * written. When the queue is full, a request waits up to {@code offer-timeout} for room and
+ * is then rejected with 503. Outcomes are kept for {@code status-time-to-live} and counted
+ * in {@value #REQUESTS_METRIC}, tagged with {@code outcome}.
+ * <p>
+ * A batch failed by such an email, or another constraint, is registered one user at a time,
+ * so only the conflicting users are rejected. Any other failure, e.g. DB being down or a lock
+ * timeout, rejects the whole batch at once rather than multiplying the load by the batch size.
+ * <p>
+ * The writer is stopped right after the graceful shutdown of the web server, in a lower
+ * phase, so no request can queue a registration anymore, and writes the whole queue
+ * before it stops.
+ */
+@Slf4j
+public class UserRegistrationQueueServiceImpl implements UserRegistrationQueueService,
+        SmartLifecycle {
+    public static final String REQUESTS_METRIC = "user.registration.queue.requests";
+    public static final String SIZE_METRIC = "user.registration.queue.size";
+    public static final String BATCH_SIZE_METRIC = "user.registration.queue.batch.size";
+    private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1;
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+    private static final String FAILED_ERROR = "Registration failed, retry later";
+    private final UserService userService;
+    private final RegistrationQueueProperties properties;
+    private final BlockingQueue<QueuedRegistration> queue;
+    private final Set<String> queuedEmails = ConcurrentHashMap.newKeySet();
+    private final Cache<String, UserRegistrationStatusDto> statuses;
+    private final Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+    private Thread writer;
+
+    public UserRegistrationQueueServiceImpl(UserService userService,
+                                            RegistrationQueueProperties properties,
+                                            MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.capacity());
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(properties.statusMaximumSize())
+                .expireAfterWrite(properties.statusTimeToLive())
+                .build();
+        for (Outcome outcome : Outcome.values()) {
+            counters.put(outcome, Counter.builder(REQUESTS_METRIC)
+                    .description("Queued registrations by outcome")
+                    .tag("outcome", outcome.getTag())
+                    .register(meterRegistry));
+        }
+        Gauge.builder(SIZE_METRIC, queue, BlockingQueue::size)
+                .description("Registrations waiting to be written")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Registrations written in one transaction")
+                .baseUnit("users")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the registration and queues it.
+     *
+     * @param requestDto user to register, already validated as a request body
+     * @return queued status with the tracking id
+     * @throws EmailAlreadyExistsException if the email is already registered or queued
+     * @throws RegistrationQueueFullException if the queue stays full or the writer is stopped
+     */
+    @Override
+    public UserRegistrationStatusDto enqueue(UserRegisterRequestDto requestDto) {
+        if (requestDto.email() == null) {
+            throw new RegistrationException("email must not be null");
+        }
+        userService.validateAge(requestDto);
+        String email = normalizeEmail(requestDto.email());
+        if (queuedEmails.contains(email)) {
+            throw new EmailAlreadyExistsException(
+                    "email " + requestDto.email() + " is already taken");
+        }
+        userService.validateEmailAvailable(requestDto.email());
+        if (!queuedEmails.add(email)) {
+            throw new EmailAlreadyExistsException(
+                    "email " + requestDto.email() + " is already taken");
+        }
+        UserRegistrationStatusDto status = new UserRegistrationStatusDto(
+                UUID.randomUUID().toString(), Status.QUEUED, null, List.of());
+        statuses.put(status.trackingId(), status);
+        if (!offer(new QueuedRegistration(status.trackingId(), email, requestDto))) {
+            statuses.invalidate(status.trackingId());
+            queuedEmails.remove(email);
+            counters.get(Outcome.FULL).increment();
+            throw new RegistrationQueueFullException(
+                    "Too many registrations are queued, retry later", properties.retryAfter());
+        }
+        counters.get(Outcome.QUEUED).increment();
+        return status;
+    }
+
+    @Override
+    public UserRegistrationStatusDto getStatus(String trackingId) {
+        UserRegistrationStatusDto status = statuses.getIfPresent(trackingId);
+        if (status == null) {
+            throw new EntityNotFoundException("Cannot find registration by tracking id: "
+                    + trackingId);
+        }
+        return status;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeQueued, "user-registration-writer");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join(STOP_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Stopped with {} registrations not written", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Writes the next batch: waits up to {@code flush-interval} for the first registration,
+     * then takes the queued ones and those arriving within {@code flush-interval} until
+     * the batch is full.
+     *
+     * @return number of written registrations
+     */
+    int flush() throws InterruptedException {
+        long flushIntervalNanos = properties.flushInterval().toNanos();
+        QueuedRegistration first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return 0;
+        }
+        List<QueuedRegistration> batch = new ArrayList<>(properties.batchSize());
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < properties.batchSize()) {
+            queue.drainTo(batch, properties.batchSize() - batch.size());
+            long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() == properties.batchSize() || remainingNanos <= 0) {
+                break;
+            }
+            QueuedRegistration next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        write(batch);
+        return batch.size();
+    }
+
+    private boolean offer(QueuedRegistration registration) {
+        if (!running) {
+            return false;
+        }
+        try {
+            return queue.offer(registration, properties.offerTimeout().toNanos(),
+                    TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void writeQueued() {
+        while (running || !queue.isEmpty()) {
+            try {
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Cannot write queued registrations", e);
+            }
+        }
+    }
+
+    private void write(List<QueuedRegistration> batch) {
+        batchSizes.record(batch.size());
+        try {
+            BatchRegistrationResponseDto response = userService.saveAll(batch.stream()
+                    .map(QueuedRegistration::requestDto)
+                    .toList());
+            for (int i = 0; i < batch.size(); i++) {
+                BatchRegistrationItemDto item = response.items().get(i);
+                complete(batch.get(i), item.user() == null
+                        ? rejected(batch.get(i), item.errors())
+                        : registered(batch.get(i), item));
+            }
+        } catch (EmailAlreadyExistsException | DataIntegrityViolationException e) {
+            // e.g. an email registered synchronously in the meantime fails the whole batch
+            log.warn("Cannot register {} users in one batch, registering them one by one",
+                    batch.size(), e);
+            batch.forEach(this::writeOne);
+        } catch (RuntimeException e) {
+            log.error("Cannot register {} queued users", batch.size(), e);
+            batch.forEach(registration -> complete(registration,
+                    rejected(registration, List.of(FAILED_ERROR))));
+        }
+    }
+
+    private void writeOne(QueuedRegistration registration) {
+        try {
+            complete(registration, new UserRegistrationStatusDto(registration.trackingId(),
+                    Status.REGISTERED, userService.save(registration.requestDto()), List.of()));
+        } catch (UserApiException | RegistrationException e) {
+            complete(registration, rejected(registration, List.of(e.getMessage())));
+        } catch (RuntimeException e) {
+            log.error("Cannot register queued user {}", registration.trackingId(), e);
+            complete(registration, rejected(registration, List.of(FAILED_ERROR)));
+        }
+    }
+
+    private UserRegistrationStatusDto registered(QueuedRegistration registration,
+                                                 BatchRegistrationItemDto item) {
+        return new UserRegistrationStatusDto(registration.trackingId(), Status.REGISTERED,
+                item.user(), List.of());
+    }
+
+    private UserRegistrationStatusDto rejected(QueuedRegistration registration,
+                                               List<String> errors) {
+        return new UserRegistrationStatusDto(registration.trackingId(), Status.REJECTED, null,
+                errors);
+    }
+
+    private void complete(QueuedRegistration registration, UserRegistrationStatusDto status) {
+        statuses.put(registration.trackingId(), status);
+        queuedEmails.remove(registration.email());
+        counters.get(status.status() == Status.REGISTERED
+                ? Outcome.REGISTERED : Outcome.REJECTED).increment();
+    }
+
+    /**
+     * Emails are compared case-insensitively, as in {@link UserServiceImpl}.
+     */
+    private String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    @Getter
+    public enum Outcome {
+        QUEUED,
+        FULL,
+        REGISTERED,
+        REJECTED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private record QueuedRegistration(
+            String trackingId,
+            String email,
+            UserRegisterRequestDto requestDto
+    ) {
+    }
+}
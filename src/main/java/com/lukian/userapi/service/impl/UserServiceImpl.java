@@ -1,79 +1,518 @@
 package com.lukian.userapi.service.impl;
 
+import com.lukian.userapi.cache.UserCache;
+import com.lukian.userapi.datasource.ReadReplica;
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
+import com.lukian.userapi.dto.BirthDateCursor;
 import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.dto.UserLookupResponseDto;
+import com.lukian.userapi.dto.UserPageResponseDto;
 import com.lukian.userapi.dto.UserRegisterRequestDto;
 import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.dto.UserStatisticsDto;
+import com.lukian.userapi.exception.EmailAlreadyExistsException;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.PreconditionFailedException;
 import com.lukian.userapi.exception.RegistrationException;
 import com.lukian.userapi.mapper.UserMapper;
 import com.lukian.userapi.model.User;
 import com.lukian.userapi.repository.UserRepository;
 import com.lukian.userapi.service.UserService;
+import com.lukian.userapi.statistics.UserSearchMetrics;
+import com.lukian.userapi.statistics.UserStatistics;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Every public method is timed as {@code user.service}, tagged with the method name.
+ */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", description = "User service method calls")
 public class UserServiceImpl implements UserService {
+    private static final int EMAIL_LOOKUP_CHUNK_SIZE = 1000;
+    private static final int ID_LOOKUP_CHUNK_SIZE = 500;
+    private static final int FIRST_MONTH_DAY = 101;
+    private static final int LAST_MONTH_DAY = 1231;
+    private static final int FEBRUARY_28 = 228;
+    private static final int FEBRUARY_29 = 229;
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+    private static final int MYSQL_DUPLICATE_ENTRY_ERROR = 1062;
+    private static final Pattern EMAIL_KEY = Pattern.compile(
+            "^(users\\.)?email$|^user_emails\\.|\\busers\\(email\\b", Pattern.CASE_INSENSITIVE);
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final UserCache userCache;
+    private final UserStatistics userStatistics;
+    private final UserSearchMetrics userSearchMetrics;
     @Value("${user.min-age}")
     private int minUserAge;
+    @Value("${user.batch.max-size}")
+    private int maxBatchSize;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
 
+    /**
+     * Registers the user; a taken email is reported by the unique key
+     * when the insert commits, which is answered as a conflict.
+     */
     @Override
     public UserResponseDto save(UserRegisterRequestDto requestDto) {
         validateAge(requestDto);
         User user = userMapper.toModel(requestDto);
-        return userMapper.toDto(userRepository.save(user));
+        UserResponseDto savedUser;
+        try {
+            savedUser = userMapper.toDto(userRepository.save(user));
+        } catch (DataIntegrityViolationException e) {
+            throw emailTakenOr(e, emailTakenMessage(requestDto.email()));
+        }
+        userCache.put(savedUser);
+        userStatistics.userAdded(savedUser.birthDate());
+        return savedUser;
     }
 
     @Override
-    public UserResponseDto updateUserEmailById(Long id, UpdateUserRequestDto requestDto) {
-        User userFromDb = getUserFromDb(id);
-        userMapper.updateFromDto(requestDto, userFromDb);
-        return userMapper.toDto(userRepository.save(userFromDb));
+    public void validateAge(UserRegisterRequestDto requestDto) {
+        if (!isOldEnough(requestDto.birthDate())) {
+            throw new RegistrationException(getAgeErrorMessage());
+        }
+    }
+
+    /**
+     * Looks the email up in the unique email index of the primary, so an email
+     * registered a moment ago is seen even when reads go to replicas.
+     */
+    @Override
+    public void validateEmailAvailable(String email) {
+        if (!userRepository.findExistingEmails(List.of(email)).isEmpty()) {
+            throw new EmailAlreadyExistsException(emailTakenMessage(email));
+        }
+    }
+
+    /**
+     * Returns the active user by id, reading through the user cache.
+     */
+    @Override
+    public UserResponseDto getById(Long id) {
+        UserResponseDto user = userCache.get(id, key -> userRepository.findById(key)
+                .map(userMapper::toDto)
+                .orElse(null));
+        if (user == null) {
+            throw new EntityNotFoundException("Cannot find user by id: " + id);
+        }
+        return user;
+    }
+
+    /**
+     * Returns the active users by ids in the order of the ids, reading through the user cache.
+     *
+     * Only the users missing from the cache are read from DB,
+     * with one {@code IN} query per {@value #ID_LOOKUP_CHUNK_SIZE} ids.
+     */
+    @Override
+    public UserLookupResponseDto getAllByIds(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, UserResponseDto> foundUsers = userCache.getAll(uniqueIds, this::findUsersByIds);
+        List<UserResponseDto> users = new ArrayList<>(foundUsers.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            UserResponseDto user = foundUsers.get(id);
+            if (user == null) {
+                missingIds.add(id);
+            } else {
+                users.add(user);
+            }
+        }
+        return new UserLookupResponseDto(users, missingIds);
     }
 
+    /**
+     * Registers users in one transaction, validating every item separately.
+     *
+     * Invalid items are reported back instead of failing the whole batch.
+     * Valid users are flushed in chunks of the JDBC batch size, so Hibernate sends
+     * them as batched INSERTs, and the persistence context is cleared after every chunk.
+     * A duplicate email the pre-check could not see, e.g. one registered concurrently,
+     * fails the whole batch as a conflict.
+     */
     @Override
-    public UserResponseDto updateUserDataById(Long id, UserRegisterRequestDto requestDto) {
+    @Transactional
+    public BatchRegistrationResponseDto saveAll(List<UserRegisterRequestDto> requestDtos) {
+        if (requestDtos.size() > maxBatchSize) {
+            throw new RegistrationException(
+                    "Cannot register more than " + maxBatchSize + " users at once");
+        }
+        Set<String> takenEmails = findTakenEmails(requestDtos);
+        List<List<String>> itemErrors = new ArrayList<>(requestDtos.size());
+        List<User> users = new ArrayList<>();
+        for (UserRegisterRequestDto requestDto : requestDtos) {
+            List<String> errors = validate(requestDto, takenEmails);
+            itemErrors.add(errors);
+            if (errors.isEmpty()) {
+                users.add(userMapper.toModel(requestDto));
+            }
+        }
+        Iterator<UserResponseDto> savedUsers = saveInBatches(users).iterator();
+        List<BatchRegistrationItemDto> items = itemErrors.stream()
+                .map(errors -> errors.isEmpty()
+                        ? new BatchRegistrationItemDto(savedUsers.next(), List.of())
+                        : new BatchRegistrationItemDto(null, errors))
+                .toList();
+        return new BatchRegistrationResponseDto(users.size(),
+                requestDtos.size() - users.size(), items);
+    }
+
+    /**
+     * Changes only the email column with one UPDATE and reads the result back
+     * as a DTO projection in the same transaction, instead of loading,
+     * dirty-checking and writing back the whole user.
+     *
+     * When {@code expectedVersion} is given, it is checked in the UPDATE's WHERE clause,
+     * so concurrent writers need no locks and a stale one simply updates no rows.
+     */
+    @Override
+    @Transactional
+    public UserResponseDto updateUserEmailById(Long id, UpdateUserRequestDto requestDto,
+                                               Long expectedVersion) {
+        int updatedRows;
+        try {
+            updatedRows = userRepository.updateEmailById(id, requestDto.email(),
+                    expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw emailTakenOr(e, emailTakenMessage(requestDto.email()));
+        }
+        if (updatedRows == 0) {
+            throw notUpdated(id, expectedVersion);
+        }
+        UserResponseDto updatedUser = userRepository.findDtoById(id)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Cannot find user by id: " + id));
+        userCache.put(updatedUser);
+        return updatedUser;
+    }
+
+    /**
+     * Replaces all user data in one transaction.
+     *
+     * The user is flushed right away, so the version check in the UPDATE's WHERE clause
+     * happens here and the returned user already carries the incremented version.
+     * A conditional update which loses that check to a concurrent writer
+     * is a failed precondition, the same as a version that was stale from the start.
+     */
+    @Override
+    @Transactional
+    public UserResponseDto updateUserDataById(Long id, UserRegisterRequestDto requestDto,
+                                              Long expectedVersion) {
         validateAge(requestDto);
         User userFromDb = getUserFromDb(id);
+        final LocalDate oldBirthDate = userFromDb.getBirthDate();
+        if (expectedVersion != null && !expectedVersion.equals(userFromDb.getVersion())) {
+            throw new PreconditionFailedException(getVersionMismatchMessage(id));
+        }
         userMapper.updateFromDto(requestDto, userFromDb);
-        return userMapper.toDto(userRepository.save(userFromDb));
+        UserResponseDto updatedUser;
+        try {
+            updatedUser = userMapper.toDto(userRepository.saveAndFlush(userFromDb));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException(getVersionMismatchMessage(id));
+        }
+        userCache.put(updatedUser);
+        userStatistics.birthDateChanged(oldBirthDate, updatedUser.birthDate());
+        return updatedUser;
     }
 
+    /**
+     * Soft-deletes the user with one UPDATE; the statistics learn the birth date
+     * of the deleted user from their next reconciliation.
+     */
     @Override
-    public void deleteById(Long id) {
-        userRepository.deleteById(getUserFromDb(id).getId());
+    @Transactional
+    public void deleteById(Long id, Long expectedVersion) {
+        if (userRepository.softDeleteById(id, expectedVersion) == 0) {
+            throw notUpdated(id, expectedVersion);
+        }
+        userCache.evict(id);
+        userStatistics.userDeleted();
     }
 
     @Override
+    @ReadReplica
+    @Transactional(readOnly = true)
     public List<UserResponseDto> searchByBirthDateRange(LocalDate fromDate, LocalDate toDate) {
-        return userRepository.findAllByBirthDateBetween(fromDate, toDate).stream()
-                .map(userMapper::toDto)
-                .toList();
+        List<UserResponseDto> users = userRepository.findDtosByBirthDateBetween(fromDate, toDate);
+        userSearchMetrics.birthDateRangeSearched(users.size());
+        return users;
+    }
+
+    /**
+     * Returns one page of users within the birth date range.
+     *
+     * One extra row is requested to find out whether another page exists,
+     * so no cursor is returned after the last page.
+     */
+    @Override
+    @ReadReplica
+    @Transactional(readOnly = true)
+    public UserPageResponseDto searchByBirthDateRange(LocalDate fromDate, LocalDate toDate,
+                                                      String cursor, int limit) {
+        Limit pageLimit = Limit.of(limit + 1);
+        List<UserResponseDto> users;
+        if (cursor == null) {
+            users = userRepository.findDtoPageByBirthDateBetween(fromDate, toDate, pageLimit);
+        } else {
+            BirthDateCursor position = BirthDateCursor.decode(cursor);
+            users = userRepository.findDtoPageAfter(fromDate, toDate,
+                    position.birthDate(), position.id(), pageLimit);
+        }
+        boolean hasNext = users.size() > limit;
+        List<UserResponseDto> page = hasNext ? users.subList(0, limit) : users;
+        userSearchMetrics.birthDatePageSearched(page.size());
+        String next = null;
+        if (hasNext) {
+            UserResponseDto last = page.get(page.size() - 1);
+            next = new BirthDateCursor(last.birthDate(), last.id()).encode();
+        }
+        return new UserPageResponseDto(page, next);
+    }
+
+    /**
+     * Returns users with the birthday within {@code days} days from the given date
+     * (both ends inclusive), ordered by the upcoming birthday.
+     *
+     * The window is converted to at most two month-day ranges (two when it wraps
+     * around New Year), matched against the indexed birth_month_day column.
+     * Users born on February 29 celebrate on February 28 in non-leap years.
+     */
+    @Override
+    @ReadReplica
+    @Transactional(readOnly = true)
+    public List<UserResponseDto> searchUpcomingBirthdays(LocalDate fromDate, int days) {
+        List<UserResponseDto> users = findUpcomingBirthdays(fromDate, days);
+        userSearchMetrics.upcomingBirthdaysSearched(users.size());
+        return users;
     }
 
-    private void validateAge(UserRegisterRequestDto requestDto) {
+    @Override
+    public UserStatisticsDto getStatistics() {
+        return userStatistics.getStatistics(LocalDate.now());
+    }
+
+    /**
+     * Streams users within the birth date range to the given consumer one by one.
+     *
+     * Users are read as DTOs, so the persistence context stays empty
+     * and memory stays flat for any range size.
+     */
+    @Override
+    @ReadReplica
+    @Transactional(readOnly = true)
+    public void streamByBirthDateRange(LocalDate fromDate, LocalDate toDate,
+                                       Consumer<UserResponseDto> consumer) {
+        long streamed = 0;
+        try (Stream<UserResponseDto> users =
+                     userRepository.streamDtosByBirthDateBetween(fromDate, toDate)) {
+            Iterator<UserResponseDto> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                streamed++;
+            }
+        }
+        userSearchMetrics.birthDateRangeStreamed(streamed);
+    }
+
+    private List<UserResponseDto> findUpcomingBirthdays(LocalDate fromDate, int days) {
+        LocalDate toDate = fromDate.plusDays(days);
+        int fromMonthDay = toMonthDay(fromDate);
+        int toMonthDay = toMonthDay(toDate);
+        if (toMonthDay == FEBRUARY_28 && !toDate.isLeapYear()) {
+            toMonthDay = FEBRUARY_29;
+        }
+        if (!toDate.isBefore(fromDate.plusYears(1).minusDays(1))) {
+            return userRepository.findDtosByBirthMonthDayRanges(
+                    fromMonthDay, LAST_MONTH_DAY, FIRST_MONTH_DAY, fromMonthDay - 1);
+        }
+        if (toDate.getYear() == fromDate.getYear()) {
+            return userRepository.findDtosByBirthMonthDayRanges(
+                    fromMonthDay, toMonthDay, LAST_MONTH_DAY, FIRST_MONTH_DAY);
+        }
+        return userRepository.findDtosByBirthMonthDayRanges(
+                fromMonthDay, LAST_MONTH_DAY, FIRST_MONTH_DAY, toMonthDay);
+    }
+
+    private int toMonthDay(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private boolean isOldEnough(LocalDate userBirthDate) {
         LocalDate currentDate = LocalDate.now();
-        LocalDate userBirthDate = requestDto.birthDate();
         Period userAge = Period.between(userBirthDate, currentDate);
+        return userAge.getYears() >= minUserAge;
+    }
 
-        if (userAge.getYears() < minUserAge) {
-            throw new RegistrationException(
-                    "User must be at least "
-                            + minUserAge
-                            + "y.o. to be able to register");
+    private String getAgeErrorMessage() {
+        return "User must be at least "
+                + minUserAge
+                + "y.o. to be able to register";
+    }
+
+    private List<String> validate(UserRegisterRequestDto requestDto, Set<String> takenEmails) {
+        if (requestDto == null) {
+            return List.of("user must not be null");
+        }
+        List<String> errors = new ArrayList<>(validator.validate(requestDto).stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .toList());
+        if (requestDto.birthDate() != null && !isOldEnough(requestDto.birthDate())) {
+            errors.add(getAgeErrorMessage());
+        }
+        if (requestDto.email() == null) {
+            errors.add("email must not be null");
+        } else if (takenEmails.contains(normalizeEmail(requestDto.email()))) {
+            errors.add("email " + requestDto.email() + " is already taken");
+        } else if (errors.isEmpty()) {
+            takenEmails.add(normalizeEmail(requestDto.email()));
         }
+        return errors;
+    }
+
+    private Set<String> findTakenEmails(List<UserRegisterRequestDto> requestDtos) {
+        List<String> emails = requestDtos.stream()
+                .filter(Objects::nonNull)
+                .map(UserRegisterRequestDto::email)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Set<String> takenEmails = new HashSet<>();
+        for (int i = 0; i < emails.size(); i += EMAIL_LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(i,
+                    Math.min(i + EMAIL_LOOKUP_CHUNK_SIZE, emails.size()));
+            userRepository.findExistingEmails(chunk).stream()
+                    .map(this::normalizeEmail)
+                    .forEach(takenEmails::add);
+        }
+        return takenEmails;
+    }
+
+    private Map<Long, UserResponseDto> findUsersByIds(Set<? extends Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        Map<Long, UserResponseDto> users = new HashMap<>();
+        for (int i = 0; i < idList.size(); i += ID_LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(i,
+                    Math.min(i + ID_LOOKUP_CHUNK_SIZE, idList.size()));
+            userRepository.findDtosByIdIn(chunk)
+                    .forEach(user -> users.put(user.id(), user));
+        }
+        return users;
+    }
+
+    /**
+     * Emails are compared case-insensitively, the same way
+     * the unique index compares them with the default MySQL collation.
+     */
+    private String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The rest of the transaction bypasses the second-level cache: Hibernate puts
+     * inserted users into it on commit, and large batches and imports would push
+     * the frequently read users out of it.
+     */
+    private List<UserResponseDto> saveInBatches(List<User> users) {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        List<UserResponseDto> savedUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i += batchSize) {
+            List<User> batch = userRepository.saveAll(
+                    users.subList(i, Math.min(i + batchSize, users.size())));
+            try {
+                userRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                throw emailTakenOr(e, "email of one of the users is already taken");
+            }
+            batch.forEach(user -> {
+                savedUsers.add(userMapper.toDto(user));
+                userStatistics.userAdded(user.getBirthDate());
+            });
+            entityManager.clear();
+        }
+        return savedUsers;
+    }
+
+    /**
+     * Tells a missing user from a version mismatch once a conditional UPDATE
+     * has changed no rows; the extra read happens only on this failure path.
+     */
+    private RuntimeException notUpdated(Long id, Long expectedVersion) {
+        if (expectedVersion != null && userRepository.findDtoById(id).isPresent()) {
+            return new PreconditionFailedException(getVersionMismatchMessage(id));
+        }
+        return new EntityNotFoundException("Cannot find user by id: " + id);
+    }
+
+    /**
+     * Answers a duplicate on the unique email key as a conflict; any other violation,
+     * e.g. a duplicate id or a missing column value, is a bug and propagates as it is.
+     *
+     * A duplicate has SQL state 23505, or on MySQL, which reports every integrity violation
+     * as 23000, the duplicate entry error code. The key is told by the name Hibernate extracts
+     * from the error: {@code users.email} on MySQL, {@code user_emails.PRIMARY} on the
+     * partitioned table, and the index {@code ON users(email)} on H2.
+     */
+    private RuntimeException emailTakenOr(DataIntegrityViolationException e, String message) {
+        if (e.getCause() instanceof ConstraintViolationException violation
+                && (UNIQUE_VIOLATION_SQL_STATE.equals(violation.getSQLState())
+                        || violation.getErrorCode() == MYSQL_DUPLICATE_ENTRY_ERROR)
+                && violation.getConstraintName() != null
+                && EMAIL_KEY.matcher(violation.getConstraintName()).find()) {
+            return new EmailAlreadyExistsException(message);
+        }
+        return e;
+    }
+
+    private String emailTakenMessage(String email) {
+        return "email " + email + " is already taken";
+    }
+
+    private String getVersionMismatchMessage(Long id) {
+        return "User with id: " + id + " was modified, fetch it and retry";
     }
 
     private User getUserFromDb(Long id) {
         return userRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Cannot find user by id: " + id));
+                .orElseThrow(() -> new EntityNotFoundException("Cannot find user by id: " + id));
     }
 }
 
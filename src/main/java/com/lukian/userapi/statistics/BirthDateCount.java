@@ -0,0 +1,12 @@
+package com.lukian.userapi.statistics;
+
+import java.time.LocalDate;
+
+/**
+ * Number of users born on the given date, as read by the reconciliation query.
+ */
+public record BirthDateCount(
+        LocalDate birthDate,
+        long count
+) {
+}
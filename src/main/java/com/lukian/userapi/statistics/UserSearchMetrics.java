@@ -0,0 +1,53 @@
+package com.lukian.userapi.statistics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distribution of the number of users returned by every kind of search,
+ * published as {@value #METRIC_NAME} tagged with {@code search}.
+ * <p>
+ * Summaries are registered once, so recording a result size on the request path
+ * is a few atomic updates without any meter lookup.
+ */
+@Component
+public class UserSearchMetrics {
+    public static final String METRIC_NAME = "user.search.results";
+    private static final String SEARCH_TAG = "search";
+    private final DistributionSummary birthDateRange;
+    private final DistributionSummary birthDatePage;
+    private final DistributionSummary birthDateStream;
+    private final DistributionSummary upcomingBirthdays;
+
+    public UserSearchMetrics(MeterRegistry meterRegistry) {
+        birthDateRange = register(meterRegistry, "birth-date-range");
+        birthDatePage = register(meterRegistry, "birth-date-page");
+        birthDateStream = register(meterRegistry, "birth-date-stream");
+        upcomingBirthdays = register(meterRegistry, "upcoming-birthdays");
+    }
+
+    public void birthDateRangeSearched(int results) {
+        birthDateRange.record(results);
+    }
+
+    public void birthDatePageSearched(int results) {
+        birthDatePage.record(results);
+    }
+
+    public void birthDateRangeStreamed(long results) {
+        birthDateStream.record(results);
+    }
+
+    public void upcomingBirthdaysSearched(int results) {
+        upcomingBirthdays.record(results);
+    }
+
+    private DistributionSummary register(MeterRegistry meterRegistry, String search) {
+        return DistributionSummary.builder(METRIC_NAME)
+                .description("Number of users returned by a search")
+                .baseUnit("users")
+                .tag(SEARCH_TAG, search)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,168 @@
+package com.lukian.userapi.statistics;
+
+import static com.lukian.userapi.util.TransactionUtil.runAfterCommit;
+
+import com.lukian.userapi.dto.UserStatisticsDto;
+import com.lukian.userapi.repository.UserRepository;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory counters of users by birth date, kept for the statistics endpoint.
+ * <p>
+ * Counters are updated incrementally by the user service once its transaction commits,
+ * so reading the statistics never touches DB, and its cost depends on the number of
+ * distinct birth dates rather than the number of users. Counters are loaded from DB on
+ * startup and periodically reconciled with the table, which also repairs any drift
+ * caused by changes made past the service (other instances, manual SQL) or by races
+ * between an update and a reconciliation.
+ * <p>
+ * Deletes are a single UPDATE which does not read the birth date, so they are counted
+ * in the totals right away, while the birth year and age distributions keep
+ * the deleted users until the next reconciliation.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserStatistics {
+    private final UserRepository userRepository;
+    private volatile Counters counters = new Counters(new ConcurrentHashMap<>(), new AtomicLong(),
+            new AtomicLong());
+    private volatile boolean loaded;
+    @Value("${user.statistics.age-bucket-width}")
+    private int ageBucketWidth;
+
+    /**
+     * Counts a new active user once the current transaction commits.
+     */
+    public void userAdded(LocalDate birthDate) {
+        runAfterCommit(() -> addActive(birthDate, 1));
+    }
+
+    /**
+     * Moves an active user to another birth date once the current transaction commits.
+     */
+    public void birthDateChanged(LocalDate oldBirthDate, LocalDate newBirthDate) {
+        if (oldBirthDate.equals(newBirthDate)) {
+            return;
+        }
+        runAfterCommit(() -> {
+            addActive(oldBirthDate, -1);
+            addActive(newBirthDate, 1);
+        });
+    }
+
+    /**
+     * Moves an active user to the soft-deleted ones once the current transaction commits;
+     * its birth date is left to the next reconciliation.
+     */
+    public void userDeleted() {
+        runAfterCommit(() -> {
+            Counters current = counters;
+            current.unattributedDeleted().incrementAndGet();
+            current.deleted().incrementAndGet();
+        });
+    }
+
+    /**
+     * Forgets soft-deleted users moved to the archive once the current transaction commits.
+     */
+    public void usersArchived(long count) {
+        runAfterCommit(() -> counters.deleted().addAndGet(-count));
+    }
+
+    /**
+     * Builds the statistics from the counters.
+     *
+     * @param today date the ages are computed for
+     * @return counts of active and deleted users and distributions of the active ones
+     */
+    public UserStatisticsDto getStatistics(LocalDate today) {
+        Counters current = counters;
+        long active = 0;
+        Map<Integer, Long> byBirthYear = new TreeMap<>();
+        Map<Integer, Long> byAgeBucketStart = new TreeMap<>();
+        for (Map.Entry<LocalDate, Long> entry : current.activeByBirthDate().entrySet()) {
+            LocalDate birthDate = entry.getKey();
+            long count = entry.getValue();
+            int age = Math.max(0, Period.between(birthDate, today).getYears());
+            active += count;
+            byBirthYear.merge(birthDate.getYear(), count, Long::sum);
+            byAgeBucketStart.merge(age / ageBucketWidth * ageBucketWidth, count, Long::sum);
+        }
+        Map<String, Long> byAgeBucket = new LinkedHashMap<>();
+        byAgeBucketStart.forEach((start, count) ->
+                byAgeBucket.put(start + "-" + (start + ageBucketWidth - 1), count));
+        return new UserStatisticsDto(Math.max(0, active - current.unattributedDeleted().get()),
+                current.deleted().get(), byBirthYear, byAgeBucket);
+    }
+
+    /**
+     * Replaces the counters with the counts read from DB.
+     *
+     * The active users are counted with one GROUP BY over the soft-delete/birth date index.
+     * Once the counters are loaded, a difference from them is logged,
+     * since it means that users were changed past the service; after deletes,
+     * whose birth dates are not known, only the totals are compared.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${user.statistics.reconcile-interval}",
+            fixedDelayString = "${user.statistics.reconcile-interval}")
+    public void reconcile() {
+        Map<LocalDate, Long> activeByBirthDate = new ConcurrentHashMap<>();
+        userRepository.countActiveGroupedByBirthDate().forEach(birthDateCount ->
+                activeByBirthDate.put(birthDateCount.birthDate(), birthDateCount.count()));
+        long deleted = userRepository.countDeleted();
+        Counters previous = counters;
+        boolean drifted = previous.unattributedDeleted().get() == 0
+                ? !previous.activeByBirthDate().equals(activeByBirthDate)
+                : count(previous) != count(activeByBirthDate);
+        if (loaded && (drifted || previous.deleted().get() != deleted)) {
+            log.info("User statistics reconciled: {} birth dates and {} deleted users before, "
+                            + "{} birth dates and {} deleted users in DB",
+                    previous.activeByBirthDate().size(), previous.deleted().get(),
+                    activeByBirthDate.size(), deleted);
+        }
+        counters = new Counters(activeByBirthDate, new AtomicLong(deleted), new AtomicLong());
+        loaded = true;
+    }
+
+    private void addActive(LocalDate birthDate, long delta) {
+        addActive(counters, birthDate, delta);
+    }
+
+    private void addActive(Counters current, LocalDate birthDate, long delta) {
+        current.activeByBirthDate().merge(birthDate, delta,
+                (count, added) -> count + added == 0 ? null : count + added);
+    }
+
+    private long count(Counters current) {
+        return count(current.activeByBirthDate()) - current.unattributedDeleted().get();
+    }
+
+    private long count(Map<LocalDate, Long> activeByBirthDate) {
+        return activeByBirthDate.values().stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * @param unattributedDeleted users deleted since the last reconciliation,
+     *                            still counted in {@code activeByBirthDate}
+     */
+    private record Counters(Map<LocalDate, Long> activeByBirthDate, AtomicLong deleted,
+                            AtomicLong unattributedDeleted) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.lukian.userapi.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+public final class RequestUtil {
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    public static final String RESPOND_ASYNC = "respond-async";
+    private static final char PREFERENCE_SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char ESCAPE = '\\';
+
+    private RequestUtil() {
+    }
+
+    /**
+     * Tells whether the client asks for the preference in any of its {@code Prefer} headers.
+     *
+     * Every header holds comma separated preferences, each a name with an optional value
+     * and parameters (RFC 7240), e.g. {@code Prefer: handling=lenient, respond-async, wait=5};
+     * names are compared case-insensitively and commas in quoted values are skipped.
+     *
+     * @param request request of the client
+     * @param preference name of the preference
+     * @return whether the preference is present
+     */
+    public static boolean hasPreference(HttpServletRequest request, String preference) {
+        Enumeration<String> headers = request.getHeaders(PREFER_HEADER);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String element : splitPreferences(headers.nextElement())) {
+                String name = element.split("[=;]", 2)[0].trim();
+                if (name.equalsIgnoreCase(preference)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells apart the clients of the API, for rate limits, idempotency keys
+     * and reading own writes.
+     *
+     * The client is the authenticated user when there is one, otherwise the remote address.
+     * It is never taken from a header, which a client could set to escape its rate limit
+     * or to reach the idempotent responses of another client. Behind a reverse proxy,
+     * {@code server.forward-headers-strategy} has to be set so that the remote address
+     * is the one the proxy forwards rather than the proxy's own.
+     *
+     * @param request request of the client
+     * @return client of the request
+     */
+    public static String getClient(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName()
+                : "address:" + request.getRemoteAddr();
+    }
+
+    private static List<String> splitPreferences(String header) {
+        List<String> elements = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (quoted && c == ESCAPE) {
+                i++;
+            } else if (c == QUOTE) {
+                quoted = !quoted;
+            } else if (c == PREFERENCE_SEPARATOR && !quoted) {
+                elements.add(header.substring(start, i));
+                start = i + 1;
+            }
+        }
+        elements.add(header.substring(start));
+        return elements;
+    }
+}
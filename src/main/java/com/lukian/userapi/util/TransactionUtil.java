@@ -0,0 +1,32 @@
+package com.lukian.userapi.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtil {
+    private TransactionUtil() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits,
+     * or right away when there is no transaction.
+     *
+     * Used to keep in-memory state in line with DB: nothing is applied
+     * for a transaction which is rolled back.
+     *
+     * @param action action to run
+     */
+    public static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                });
+    }
+}
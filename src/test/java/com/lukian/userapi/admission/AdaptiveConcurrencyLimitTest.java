@@ -0,0 +1,74 @@
+package com.lukian.userapi.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+    private static final long FAST_NANOS = Duration.ofMillis(10).toNanos();
+    private static final long SLOW_NANOS = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void tryAcquire_ShouldRejectRequestsOverLimit() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10,
+                Duration.ofMillis(100));
+
+        // When
+        boolean first = limit.tryAcquire();
+        boolean second = limit.tryAcquire();
+        boolean third = limit.tryAcquire();
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    void slowOrFailedRequests_ShouldLowerLimitDownToMinimum() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 8, 20,
+                Duration.ofMillis(100));
+
+        // When
+        limit.tryAcquire();
+        limit.release(SLOW_NANOS, false);
+        int afterSlowRequest = limit.getLimit();
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.release(FAST_NANOS, true);
+        }
+
+        // Then
+        assertEquals(9, afterSlowRequest);
+        assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    void fastRequests_ShouldRaiseLimitWhileItIsUsed() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 3,
+                Duration.ofMillis(100));
+
+        // When
+        limit.tryAcquire();
+        limit.release(FAST_NANOS, false);
+        limit.tryAcquire();
+        limit.release(FAST_NANOS, false);
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(FAST_NANOS, false);
+            limit.release(FAST_NANOS, false);
+        }
+
+        // Then
+        assertEquals(3, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+}
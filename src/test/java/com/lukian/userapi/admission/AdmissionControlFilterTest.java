@@ -0,0 +1,273 @@
+package com.lukian.userapi.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.admission.AdmissionControlFilter.Group;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class AdmissionControlFilterTest {
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private MeterRegistry meterRegistry;
+
+    private AdaptiveConcurrencyLimit searchLimit;
+
+    private AdaptiveConcurrencyLimit lookupLimit;
+
+    private AdaptiveConcurrencyLimit writeLimit;
+
+    private AdaptiveConcurrencyLimit bulkLimit;
+
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        searchLimit = new AdaptiveConcurrencyLimit(1, 1, 1, Duration.ofSeconds(1));
+        lookupLimit = new AdaptiveConcurrencyLimit(1, 1, 1, Duration.ofSeconds(1));
+        writeLimit = new AdaptiveConcurrencyLimit(10, 2, 10, Duration.ZERO);
+        bulkLimit = AdaptiveConcurrencyLimit.fixed(1);
+        filter = createFilter(new TokenBucketRateLimiter(1, 2, 100, nanoTime::get));
+    }
+
+    @Test
+    void clientOverRateLimit_ShouldGetTooManyRequestsUntilTokenIsRefilled() throws Exception {
+        // Given
+        perform(request("GET", "/api/users/1", "client"));
+        perform(request("GET", "/api/users/1", "client"));
+
+        // When
+        final MockHttpServletResponse rejected =
+                perform(request("GET", "/api/users/1", "client"));
+        final MockHttpServletResponse otherClient =
+                perform(request("GET", "/api/users/1", "other"));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        final MockHttpServletResponse refilled =
+                perform(request("GET", "/api/users/1", "client"));
+
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getContentAsString().contains("Too many requests, retry later"));
+        assertEquals(HttpStatus.OK.value(), otherClient.getStatus());
+        assertEquals(HttpStatus.OK.value(), refilled.getStatus());
+        assertEquals(1, getRequests("lookup", "rate-limited"));
+        assertEquals(4, getRequests("lookup", "admitted"));
+    }
+
+    @Test
+    void withoutRateLimiter_ShouldAdmitEveryRequestOfClient() throws Exception {
+        // Given
+        filter = createFilter(null);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            perform(request("GET", "/api/users/1", "client"));
+        }
+
+        // Then
+        assertEquals(0, getRequests("lookup", "rate-limited"));
+        assertEquals(5, getRequests("lookup", "admitted"));
+    }
+
+    @Test
+    void lookupsByIdAndBirthdays_ShouldBeLimitedTogether() {
+        // Given
+        MockHttpServletRequest byIds = request("GET", "/api/users", "client");
+        byIds.setParameter("ids", "1,2");
+
+        // Then
+        assertEquals(Group.LOOKUP, Group.of(request("GET", "/api/users/42", "client")));
+        assertEquals(Group.LOOKUP, Group.of(byIds));
+        assertEquals(Group.LOOKUP, Group.of(request("POST", "/api/users/lookup", "client")));
+        assertEquals(Group.LOOKUP, Group.of(request("GET", "/api/users/birthdays", "client")));
+        assertEquals(Group.OTHER, Group.of(request("GET", "/api/users/statistics", "client")));
+        assertEquals(Group.OTHER, Group.of(request("GET", "/api/users/imports/1", "client")));
+        assertEquals(Group.WRITE, Group.of(request("PUT", "/api/users/42", "client")));
+    }
+
+    @Test
+    void saturatedLookups_ShouldBeShedWithServiceUnavailable() throws Exception {
+        // Given
+        MockHttpServletResponse[] nestedResponse = new MockHttpServletResponse[1];
+        MockFilterChain slowChain = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request,
+                                 jakarta.servlet.ServletResponse response) {
+                try {
+                    nestedResponse[0] = perform(request("GET", "/api/users/2", "other"));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        // When
+        filter.doFilter(request("GET", "/api/users/1", "client"),
+                new MockHttpServletResponse(), slowChain);
+
+        // Then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), nestedResponse[0].getStatus());
+        assertEquals(1, getRequests("lookup", "shed"));
+        assertEquals(0, lookupLimit.getInFlight());
+    }
+
+    @Test
+    void clientSendingOtherClientIds_ShouldStayRateLimitedByRemoteAddress() throws Exception {
+        // Given
+        perform(request("GET", "/api/users/1", "client"));
+        perform(request("GET", "/api/users/1", "client"));
+        MockHttpServletRequest request = request("GET", "/api/users/1", "client");
+        request.addHeader("X-Client-Id", "someone-else");
+
+        // When
+        final MockHttpServletResponse rejected = perform(request);
+        MockHttpServletRequest authenticated = request("GET", "/api/users/1", "client");
+        authenticated.setUserPrincipal(() -> "user");
+        final MockHttpServletResponse authenticatedUser = perform(authenticated);
+
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+        assertEquals(HttpStatus.OK.value(), authenticatedUser.getStatus());
+    }
+
+    @Test
+    void saturatedSearch_ShouldBeShedWithServiceUnavailable() throws Exception {
+        // Given
+        MockHttpServletResponse[] nestedResponse = new MockHttpServletResponse[1];
+        MockFilterChain slowChain = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request,
+                                 jakarta.servlet.ServletResponse response) {
+                try {
+                    nestedResponse[0] = perform(request("GET", "/api/users/search", "other"));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/users/search", "client"), response, slowChain);
+
+        // Then
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), nestedResponse[0].getStatus());
+        assertEquals("2", nestedResponse[0].getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, getRequests("search", "shed"));
+        assertEquals(1, getRequests("search", "admitted"));
+        assertEquals(0, searchLimit.getInFlight());
+    }
+
+    @Test
+    void streamedSearch_ShouldHoldLimitUntilResponseCompletes() throws Exception {
+        // Given
+        MockHttpServletRequest request = request("GET", "/api/users/search", "client");
+        request.setAsyncSupported(true);
+        MockFilterChain asyncChain = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request,
+                                 jakarta.servlet.ServletResponse response) {
+                request.startAsync();
+            }
+        };
+
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), asyncChain);
+        int inFlightWhileStreaming = searchLimit.getInFlight();
+        request.getAsyncContext().complete();
+
+        // Then
+        assertEquals(1, inFlightWhileStreaming);
+        assertEquals(0, searchLimit.getInFlight());
+    }
+
+    @Test
+    void slowBatchRegistration_ShouldNotLowerWriteLimit() throws Exception {
+        // When
+        final MockHttpServletResponse batch =
+                perform(request("POST", "/api/users/batch", "client"));
+        int writeLimitAfterBatch = writeLimit.getLimit();
+        final MockHttpServletResponse write =
+                perform(request("POST", "/api/users", "other"));
+
+        // Then
+        assertEquals(HttpStatus.OK.value(), batch.getStatus());
+        assertEquals(HttpStatus.OK.value(), write.getStatus());
+        assertEquals(10, writeLimitAfterBatch);
+        assertEquals(9, writeLimit.getLimit());
+        assertEquals(1, bulkLimit.getLimit());
+        assertEquals(0, bulkLimit.getInFlight());
+        assertEquals(1, getRequests("bulk", "admitted"));
+    }
+
+    @Test
+    void saturatedBulkWrites_ShouldBeShedWithoutTakingWriteSlots() throws Exception {
+        // Given
+        MockHttpServletResponse[] nestedResponse = new MockHttpServletResponse[1];
+        int[] writesInFlight = new int[1];
+        MockFilterChain slowChain = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request,
+                                 jakarta.servlet.ServletResponse response) {
+                writesInFlight[0] = writeLimit.getInFlight();
+                try {
+                    nestedResponse[0] = perform(request("POST", "/api/users/imports", "other"));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        // When
+        filter.doFilter(request("POST", "/api/users/batch", "client"),
+                new MockHttpServletResponse(), slowChain);
+
+        // Then
+        assertEquals(0, writesInFlight[0]);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), nestedResponse[0].getStatus());
+        assertEquals(1, getRequests("bulk", "shed"));
+    }
+
+    private AdmissionControlFilter createFilter(TokenBucketRateLimiter rateLimiter) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new AdmissionControlFilter(rateLimiter,
+                Map.of(Group.SEARCH, searchLimit, Group.LOOKUP, lookupLimit,
+                        Group.WRITE, writeLimit, Group.BULK, bulkLimit), Duration.ofSeconds(2),
+                new ObjectMapper().findAndRegisterModules(), meterRegistry);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+
+    private double getRequests(String group, String outcome) {
+        return meterRegistry.get(AdmissionControlFilter.REQUESTS_METRIC)
+                .tag("group", group)
+                .tag("outcome", outcome)
+                .counter().count();
+    }
+}
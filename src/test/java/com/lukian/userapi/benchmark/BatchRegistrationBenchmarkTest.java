@@ -0,0 +1,154 @@
+package com.lukian.userapi.benchmark;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares registering users one by one, each in its own transaction as
+ * {@code POST /api/users} does, with the batch registration, which writes them
+ * with batched INSERTs of {@code hibernate.jdbc.batch_size} rows in one transaction.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true}, against H2 unless
+ * {@code -Dbenchmark.datasource.url=jdbc:mysql://...} (plus
+ * {@code benchmark.datasource.username}, {@code benchmark.datasource.password} and
+ * {@code benchmark.datasource.driver-class-name=com.mysql.cj.jdbc.Driver}) points
+ * it to an empty schema. In-memory H2 has no network round trips to save, so only
+ * the MySQL numbers show the real gain of batching.
+ */
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=${benchmark.datasource.url:"
+                + "jdbc:h2:mem:batch-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE}",
+        "spring.datasource.driver-class-name="
+                + "${benchmark.datasource.driver-class-name:org.h2.Driver}",
+        "spring.datasource.username=${benchmark.datasource.username:sa}",
+        "spring.datasource.password=${benchmark.datasource.password:}",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BatchRegistrationBenchmarkTest {
+    private static final int USERS = 10_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    private int round;
+
+    @Test
+    void compareRegistrationPaths() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Consumer<List<User>> oneByOne = users -> users.forEach(user ->
+                transaction.executeWithoutResult(status -> userRepository.save(user)));
+        Consumer<List<User>> batched = users -> transaction.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            for (int i = 0; i < users.size(); i += batchSize) {
+                userRepository.saveAll(users.subList(i, Math.min(i + batchSize, users.size())));
+                userRepository.flush();
+                entityManager.clear();
+            }
+        });
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            oneByOne.accept(createUsers());
+            batched.accept(createUsers());
+        }
+        Measurement oneByOneTotal = new Measurement();
+        Measurement batchedTotal = new Measurement();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            measure(oneByOne, oneByOneTotal);
+            measure(batched, batchedTotal);
+        }
+        report("one by one", oneByOneTotal);
+        report("batched", batchedTotal);
+        System.out.printf("batched/one by one: %.1fx rows/s%n",
+                batchedTotal.rowsPerSecond() / oneByOneTotal.rowsPerSecond());
+    }
+
+    /**
+     * Rounds of both paths alternate, so neither one is measured only
+     * after the other has grown the table and the email index.
+     */
+    private void measure(Consumer<List<User>> register, Measurement total) {
+        List<User> users = createUsers();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        register.accept(users);
+        total.elapsedNanos += System.nanoTime() - start;
+        total.rows += users.size();
+        total.statements += statistics.getPrepareStatementCount();
+        total.transactions += statistics.getTransactionCount();
+    }
+
+    private void report(String name, Measurement total) {
+        System.out.printf("%-12s %9.0f rows/s, %.3f statements/row, %.0f rows/transaction%n",
+                name, total.rowsPerSecond(),
+                (double) total.statements / total.rows,
+                (double) total.rows / total.transactions);
+    }
+
+    private List<User> createUsers() {
+        round++;
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("benchmark" + round + "." + i + "@example.com");
+            user.setFirstName("John");
+            user.setLastName("Doe");
+            user.setBirthDate(LocalDate.of(1990, 1, 1).plusDays(i % 3650));
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static class Measurement {
+        private long elapsedNanos;
+        private long rows;
+        private long statements;
+        private long transactions;
+
+        private double rowsPerSecond() {
+            return rows / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.lukian.userapi.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.lukian.userapi.config.BinaryFormatConfig;
+import com.lukian.userapi.converter.ProtobufUserHttpMessageConverter;
+import com.lukian.userapi.converter.UserProtobufSchemas;
+import com.lukian.userapi.converter.UserStreamWriters;
+import com.lukian.userapi.converter.UserStreamWriters.UserStreamWriter;
+import com.lukian.userapi.dto.UserPageResponseDto;
+import com.lukian.userapi.dto.UserResponseDto;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Compares payload size and encode and decode cost of the search response
+ * ({@value #USERS} users) in JSON, CBOR, Smile and Protobuf, buffered through
+ * the registered message converters and streamed through {@link UserStreamWriters}.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true}. Decoding is measured with Jackson
+ * for all formats, as a client of the API would read them.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BinaryFormatBenchmarkTest {
+    private static final int USERS = 10_000;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 100;
+    private static final Type USER_LIST_TYPE = new TypeReference<List<UserResponseDto>>() {
+    }.getType();
+
+    private final ObjectMapper jsonMapper = new Jackson2ObjectMapperBuilder()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final BinaryFormatConfig binaryFormatConfig = new BinaryFormatConfig(
+            new Jackson2ObjectMapperBuilder()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+    private final List<UserResponseDto> users = createUsers();
+
+    @Test
+    void compareFormats() throws IOException {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter(jsonMapper));
+        binaryFormatConfig.extendMessageConverters(converters);
+        System.out.printf("%-44s %10s %12s %12s%n", "format", "bytes", "encode ms", "decode ms");
+        for (HttpMessageConverter<?> converter : converters) {
+            MediaType type = converter.getSupportedMediaTypes().get(0);
+            report(type.toString(), () -> writeBuffered(converter, type),
+                    body -> readBuffered(converter, body));
+        }
+        UserStreamWriters streamWriters = binaryFormatConfig.userStreamWriters(jsonMapper);
+        for (MediaType type : UserStreamWriters.STREAM_TYPES) {
+            report(type + " (streamed)", () -> writeStreamed(streamWriters, type), null);
+        }
+    }
+
+    private void report(String format, Encoder encoder, Decoder decoder) throws IOException {
+        byte[] body = encoder.encode();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            encoder.encode();
+            if (decoder != null) {
+                decoder.decode(body);
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            encoder.encode();
+        }
+        double encodeMillis = (System.nanoTime() - start) / ROUNDS / 1_000_000.0;
+        String decodeMillis = "-";
+        if (decoder != null) {
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                decoder.decode(body);
+            }
+            decodeMillis = "%.2f".formatted((System.nanoTime() - start) / ROUNDS / 1_000_000.0);
+        }
+        System.out.printf("%-44s %10d %12.2f %12s%n", format, body.length, encodeMillis,
+                decodeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] writeBuffered(HttpMessageConverter<?> converter, MediaType type)
+            throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        ((GenericHttpMessageConverter<Object>) converter)
+                .write(users, USER_LIST_TYPE, type, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    private int readBuffered(HttpMessageConverter<?> converter, byte[] body) throws IOException {
+        if (converter instanceof ProtobufUserHttpMessageConverter) {
+            UserPageResponseDto page = new ObjectMapper(new ProtobufFactory())
+                    .findAndRegisterModules()
+                    .readerFor(UserPageResponseDto.class)
+                    .with(UserProtobufSchemas.USERS)
+                    .readValue(body);
+            return page.users().size();
+        }
+        ObjectMapper objectMapper = ((AbstractJackson2HttpMessageConverter) converter)
+                .getObjectMapper();
+        List<UserResponseDto> decodedUsers = objectMapper.readValue(body,
+                objectMapper.constructType(USER_LIST_TYPE));
+        return decodedUsers.size();
+    }
+
+    private byte[] writeStreamed(UserStreamWriters streamWriters, MediaType type)
+            throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (UserStreamWriter writer = streamWriters.open(type, outputStream)) {
+            for (UserResponseDto user : users) {
+                writer.write(user);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static List<UserResponseDto> createUsers() {
+        List<UserResponseDto> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new UserResponseDto((long) i, "benchmark" + i + "@example.com",
+                    "John", "Doe", LocalDate.of(1950, 1, 1).plusDays(i),
+                    i % 2 == 0 ? "Address " + i : null, "+380000000000", 0L));
+        }
+        return users;
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        byte[] encode() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        int decode(byte[] body) throws IOException;
+    }
+}
@@ -0,0 +1,144 @@
+package com.lukian.userapi.benchmark;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.mapper.UserMapper;
+import com.lukian.userapi.mapper.impl.UserMapperImpl;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the direct email update with the former load-modify-save cycle.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true} against H2, so the numbers show
+ * the relative cost on the application side rather than real DB latency.
+ */
+@DataJpaTest
+@Import({UserMapperImpl.class, SecondLevelCacheConfig.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:email-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EmailUpdateBenchmarkTest {
+    private static final int USERS = 1_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareEmailUpdatePaths() {
+        List<Long> ids = createUsers();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        LongConsumer loadModifySave = id -> transaction.executeWithoutResult(status -> {
+            User user = userRepository.findById(id).orElseThrow();
+            userMapper.updateFromDto(new UpdateUserRequestDto(nextEmail(id)), user);
+            userMapper.toDto(userRepository.save(user));
+        });
+        LongConsumer directUpdate = id -> transaction.executeWithoutResult(status -> {
+            userRepository.updateEmailById(id, nextEmail(id), null);
+            userRepository.findDtoById(id).orElseThrow();
+        });
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(ids, loadModifySave);
+            run(ids, directUpdate);
+        }
+        Measurement loadModifySaveTotal = new Measurement();
+        Measurement directUpdateTotal = new Measurement();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            measure(ids, loadModifySave, loadModifySaveTotal);
+            measure(ids, directUpdate, directUpdateTotal);
+        }
+        report("load-modify-save", loadModifySaveTotal);
+        report("direct update", directUpdateTotal);
+    }
+
+    /**
+     * Rounds of both paths alternate, so neither one is measured only
+     * after the other has grown the table and the email index.
+     */
+    private void measure(List<Long> ids, LongConsumer update, Measurement total) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        total.elapsedNanos += run(ids, update);
+        total.updates += ids.size();
+        total.statements += statistics.getPrepareStatementCount();
+        total.entitiesLoaded += statistics.getEntityLoadCount();
+    }
+
+    private void report(String name, Measurement total) {
+        System.out.printf("%-16s %6.2f ms/update, %.1f statements/update, "
+                        + "%.1f entities loaded/update%n", name,
+                total.elapsedNanos / 1_000_000.0 / total.updates,
+                (double) total.statements / total.updates,
+                (double) total.entitiesLoaded / total.updates);
+    }
+
+    private long run(List<Long> ids, LongConsumer update) {
+        long start = System.nanoTime();
+        ids.forEach(update::accept);
+        return System.nanoTime() - start;
+    }
+
+    private List<Long> createUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("benchmark" + i + "@example.com");
+            user.setFirstName("John");
+            user.setLastName("Doe");
+            user.setBirthDate(LocalDate.of(1990, 1, 1));
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream()
+                .map(User::getId)
+                .toList();
+    }
+
+    private String nextEmail(long id) {
+        return "benchmark" + id + "." + System.nanoTime() + "@example.com";
+    }
+
+    private static class Measurement {
+        private long elapsedNanos;
+        private long updates;
+        private long statements;
+        private long entitiesLoaded;
+    }
+}
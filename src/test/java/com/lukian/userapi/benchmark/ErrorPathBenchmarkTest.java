@@ -0,0 +1,117 @@
+package com.lukian.userapi.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.lukian.userapi.controller.UserController;
+import com.lukian.userapi.converter.UserStreamWriters;
+import com.lukian.userapi.exception.CustomGlobalExceptionHandler;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.service.UserRegistrationQueueService;
+import com.lukian.userapi.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.util.function.LongFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Compares the cost of a request for a missing user when the service throws an exception
+ * with a stack trace, as {@code IllegalArgumentException} used to (answered with 500),
+ * and the stackless {@link EntityNotFoundException} (answered with 404).
+ * <p>
+ * Runs only with {@code -Dbenchmark=true}. The exceptions alone are created
+ * {@value #STACK_DEPTH} frames deep, about as deep as a service call below the servlet
+ * filters, Spring MVC and the service proxies; the requests go through Spring MVC and
+ * the exception handler with MockMvc, without the servlet container's error logging.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ErrorPathBenchmarkTest {
+    private static final int STACK_DEPTH = 150;
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int CALLS = 500_000;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int REQUESTS = 50_000;
+
+    @Test
+    void compareErrorPaths() throws Exception {
+        System.out.printf("%-40s %12s%n", "exception", "ns/exception");
+        reportException("IllegalArgumentException",
+                id -> new IllegalArgumentException("Cannot find user by id: " + id));
+        reportException("EntityNotFoundException (stackless)",
+                id -> new EntityNotFoundException("Cannot find user by id: " + id));
+
+        System.out.printf("%-40s %12s%n", "request", "requests/s");
+        reportRequests("IllegalArgumentException (500)",
+                id -> new IllegalArgumentException("Cannot find user by id: " + id));
+        reportRequests("EntityNotFoundException (404)",
+                id -> new EntityNotFoundException("Cannot find user by id: " + id));
+    }
+
+    private void reportException(String name, LongFunction<RuntimeException> exceptions) {
+        measureExceptions(exceptions, WARMUP_CALLS);
+        System.out.printf("%-40s %12.1f%n", name, measureExceptions(exceptions, CALLS));
+    }
+
+    private double measureExceptions(LongFunction<RuntimeException> exceptions, int calls) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            checksum += throwAt(STACK_DEPTH, i, exceptions);
+        }
+        double nanosPerCall = (double) (System.nanoTime() - start) / calls;
+        if (checksum == 0) {
+            throw new IllegalStateException("No exception was thrown");
+        }
+        return nanosPerCall;
+    }
+
+    private int throwAt(int depth, long id, LongFunction<RuntimeException> exceptions) {
+        if (depth > 0) {
+            return throwAt(depth - 1, id, exceptions);
+        }
+        try {
+            throw exceptions.apply(id);
+        } catch (RuntimeException e) {
+            return e.getMessage().length();
+        }
+    }
+
+    private void reportRequests(String name, LongFunction<RuntimeException> exceptions)
+            throws Exception {
+        UserService userService = mock(UserService.class);
+        when(userService.getById(anyLong()))
+                .thenAnswer(invocation -> {
+                    throw exceptions.apply(invocation.getArgument(0));
+                });
+        MockMvc mockMvc = MockMvcBuilders
+                .standaloneSetup(new UserController(userService, mock(UserStreamWriters.class),
+                        new StaticListableBeanFactory()
+                                .getBeanProvider(UserRegistrationQueueService.class)))
+                .setControllerAdvice(new CustomGlobalExceptionHandler(new SimpleMeterRegistry()))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(
+                        new Jackson2ObjectMapperBuilder().build()))
+                .build();
+        measureRequests(mockMvc, WARMUP_REQUESTS);
+        System.out.printf("%-40s %12.0f%n", name, measureRequests(mockMvc, REQUESTS));
+    }
+
+    private double measureRequests(MockMvc mockMvc, int requests) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            try {
+                mockMvc.perform(get("/api/users/{id}", i));
+            } catch (ServletException e) {
+                // unmapped exceptions are rethrown by MockMvc, as to the servlet container
+            }
+        }
+        return requests / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
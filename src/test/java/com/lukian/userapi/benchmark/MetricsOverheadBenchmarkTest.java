@@ -0,0 +1,94 @@
+package com.lukian.userapi.benchmark;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.function.IntUnaryOperator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * Measures what the metrics add to every call: the {@code @Timed} aspect around
+ * a service method, and recording a search result size, both with histogram
+ * buckets enabled as in application.properties.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true}; the target method does almost nothing,
+ * so the difference between the plain and the timed proxy is the timer overhead.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MetricsOverheadBenchmarkTest {
+    private static final int WARMUP_CALLS = 2_000_000;
+    private static final int CALLS = 5_000_000;
+
+    @Test
+    void measureOverhead() {
+        PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(
+                PrometheusConfig.DEFAULT);
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id,
+                                                         DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        });
+        Target plain = proxy(new Target(), null);
+        Target timed = proxy(new Target(), new TimedAspect(meterRegistry));
+        DistributionSummary summary = DistributionSummary.builder("benchmark.results")
+                .register(meterRegistry);
+
+        measure("proxy", plain::call, WARMUP_CALLS);
+        measure("@Timed proxy", timed::call, WARMUP_CALLS);
+        measure("summary record", value -> {
+            summary.record(value);
+            return value;
+        }, WARMUP_CALLS);
+        report("proxy", plain::call);
+        report("@Timed proxy", timed::call);
+        report("summary record", value -> {
+            summary.record(value);
+            return value;
+        });
+    }
+
+    private Target proxy(Target target, Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        if (aspect != null) {
+            factory.addAspect(aspect);
+        }
+        return factory.getProxy();
+    }
+
+    private void report(String name, IntUnaryOperator call) {
+        System.out.printf("%-16s %8.1f ns/call%n", name, measure(name, call, CALLS));
+    }
+
+    private double measure(String name, IntUnaryOperator call, int calls) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            checksum += call.applyAsInt(i & 1023);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        if (checksum < 0) {
+            throw new IllegalStateException(name + " overflowed");
+        }
+        return (double) elapsedNanos / calls;
+    }
+
+    public static class Target {
+        @Timed("benchmark.calls")
+        public int call(int value) {
+            return value + 1;
+        }
+    }
+}
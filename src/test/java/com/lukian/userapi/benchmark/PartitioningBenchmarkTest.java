@@ -0,0 +1,177 @@
+package com.lukian.userapi.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Compares the birth date range search, and the lookup by id, on a copy of the users
+ * table with one on a copy partitioned the way the {@code partitioning} Liquibase context
+ * partitions users, both filled with the same {@code benchmark.rows} users
+ * (10 million by default). A lookup by id does not know the birth date, so on the
+ * partitioned table it probes the primary key of every partition.
+ * <p>
+ * Partition pruning needs MySQL, so this runs only with {@code -Dbenchmark=true}
+ * and {@code -Dbenchmark.mysql.url=jdbc:mysql://...} (plus
+ * {@code benchmark.mysql.username} and {@code benchmark.mysql.password}).
+ * The tables are created in that schema and dropped afterwards.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mysql.url", matches = ".+")
+class PartitioningBenchmarkTest {
+    private static final String PLAIN_TABLE = "users_benchmark";
+    private static final String PARTITIONED_TABLE = "users_benchmark_partitioned";
+    private static final int INSERT_CHUNK_SIZE = 500_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    private static final int ID_LOOKUPS = 10_000;
+    private static final String COLUMNS = "id BIGINT NOT NULL, "
+            + "email VARCHAR(255) NOT NULL, "
+            + "first_name VARCHAR(255) NOT NULL, "
+            + "last_name VARCHAR(255) NOT NULL, "
+            + "birth_date DATE NOT NULL, "
+            + "address VARCHAR(255), "
+            + "phone_number VARCHAR(255), "
+            + "is_deleted BOOLEAN NOT NULL DEFAULT FALSE, "
+            + "version BIGINT NOT NULL DEFAULT 0, "
+            + "INDEX idx_is_deleted_birth_date_id (is_deleted, birth_date, id), ";
+    private static final String SEARCH_SQL = "SELECT id, email, first_name, last_name, "
+            + "birth_date, address, phone_number, version FROM %s "
+            + "WHERE birth_date BETWEEN ? AND ? AND is_deleted = false";
+    private static final String FIND_BY_ID_SQL = "SELECT id, email, first_name, last_name, "
+            + "birth_date, address, phone_number, version FROM %s "
+            + "WHERE id = ? AND is_deleted = false";
+
+    private final long rows = Long.getLong("benchmark.rows", 10_000_000L);
+
+    private SingleConnectionDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("benchmark.mysql.url"),
+                System.getProperty("benchmark.mysql.username", "root"),
+                System.getProperty("benchmark.mysql.password", ""), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        dropTables();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dropTables();
+        dataSource.destroy();
+    }
+
+    @Test
+    void compareBirthDateRangeSearch() {
+        createTables();
+        fillTables();
+        List<LocalDate[]> ranges = List.of(
+                range(LocalDate.of(1985, 3, 1), LocalDate.of(1985, 3, 31)),
+                range(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31)),
+                range(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31)));
+        for (LocalDate[] range : ranges) {
+            for (String table : List.of(PLAIN_TABLE, PARTITIONED_TABLE)) {
+                report(table, range[0], range[1]);
+            }
+        }
+        for (String table : List.of(PLAIN_TABLE, PARTITIONED_TABLE)) {
+            reportIdLookups(table);
+        }
+    }
+
+    private void report(String table, LocalDate fromDate, LocalDate toDate) {
+        String sql = SEARCH_SQL.formatted(table);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            jdbcTemplate.queryForList(sql, fromDate, toDate);
+        }
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            found = jdbcTemplate.queryForList(sql, fromDate, toDate).size();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> plan = jdbcTemplate.queryForMap("EXPLAIN " + sql, fromDate, toDate);
+        System.out.printf("%-28s %s..%s %8d rows %10.2f ms, partitions: %s, key: %s%n",
+                table, fromDate, toDate, found, elapsedNanos / ROUNDS / 1_000_000.0,
+                plan.get("partitions"), plan.get("key"));
+    }
+
+    private void reportIdLookups(String table) {
+        String sql = FIND_BY_ID_SQL.formatted(table);
+        lookUpIds(sql);
+        long start = System.nanoTime();
+        int found = lookUpIds(sql);
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> plan = jdbcTemplate.queryForMap("EXPLAIN " + sql, rows / 2);
+        System.out.printf("%-28s by id %8d found %10.3f ms, partitions: %s, key: %s%n",
+                table, found, elapsedNanos / ID_LOOKUPS / 1_000_000.0,
+                plan.get("partitions"), plan.get("key"));
+    }
+
+    private int lookUpIds(String sql) {
+        Random random = new Random(ID_LOOKUPS);
+        int found = 0;
+        for (int i = 0; i < ID_LOOKUPS; i++) {
+            found += jdbcTemplate.queryForList(sql, 1 + random.nextLong(rows)).size();
+        }
+        return found;
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("CREATE TABLE " + PLAIN_TABLE + " (" + COLUMNS
+                + "PRIMARY KEY (id), UNIQUE KEY uk_email (email))");
+        jdbcTemplate.execute("CREATE TABLE " + PARTITIONED_TABLE + " (" + COLUMNS
+                + "PRIMARY KEY (id, birth_date), INDEX idx_email (email)) "
+                + "PARTITION BY RANGE (YEAR(birth_date)) ("
+                + partitions() + "PARTITION p_max VALUES LESS THAN MAXVALUE)");
+    }
+
+    private String partitions() {
+        StringBuilder partitions = new StringBuilder();
+        for (int year = 1930; year <= 2030; year += 10) {
+            partitions.append("PARTITION p_").append(year)
+                    .append(" VALUES LESS THAN (").append(year).append("), ");
+        }
+        return partitions.toString();
+    }
+
+    /**
+     * Generates the users in the DB with a recursive CTE, chunk by chunk, so loading
+     * 10 million rows takes minutes rather than the hours of INSERTs sent from here.
+     * Birth dates are spread evenly over 1930-2009.
+     */
+    private void fillTables() {
+        jdbcTemplate.execute("SET SESSION cte_max_recursion_depth = " + INSERT_CHUNK_SIZE);
+        for (long firstId = 1; firstId <= rows; firstId += INSERT_CHUNK_SIZE) {
+            long lastId = Math.min(firstId + INSERT_CHUNK_SIZE - 1, rows);
+            jdbcTemplate.update("INSERT INTO " + PLAIN_TABLE
+                    + " (id, email, first_name, last_name, birth_date, address, phone_number)"
+                    + " WITH RECURSIVE ids (id) AS (SELECT ? UNION ALL"
+                    + " SELECT id + 1 FROM ids WHERE id < ?)"
+                    + " SELECT id, CONCAT('user', id, '@example.com'), 'John', 'Doe',"
+                    + " DATE_ADD('1930-01-01', INTERVAL (id * 7919) % 29220 DAY),"
+                    + " CONCAT('Address ', id), '+380000000000' FROM ids",
+                    firstId, lastId);
+            jdbcTemplate.update("INSERT INTO " + PARTITIONED_TABLE + " SELECT * FROM "
+                    + PLAIN_TABLE + " WHERE id BETWEEN ? AND ?", firstId, lastId);
+        }
+        jdbcTemplate.execute("ANALYZE TABLE " + PLAIN_TABLE + ", " + PARTITIONED_TABLE);
+    }
+
+    private void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PLAIN_TABLE + ", " + PARTITIONED_TABLE);
+    }
+
+    private static LocalDate[] range(LocalDate fromDate, LocalDate toDate) {
+        return new LocalDate[] {fromDate, toDate};
+    }
+}
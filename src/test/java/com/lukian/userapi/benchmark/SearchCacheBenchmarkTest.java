@@ -0,0 +1,168 @@
+package com.lukian.userapi.benchmark;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures what keeping the birth date search in the Hibernate query cache would cost:
+ * the heap retained by cached results of wide ranges, and the hit ratio of hot ranges
+ * while users are written, since every write to the users table invalidates the region.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true} against H2, over {@value #USERS} users
+ * born in {@value #YEARS} consecutive years. Heap is compared after full GCs; H2 shares
+ * the strings of the cached rows with its in-memory table, so with a real DB the retained
+ * heap per row is higher.
+ */
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-cache-benchmark;MODE=MySQL;"
+                + "DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "user.second-level-cache.regions." + SearchCacheBenchmarkTest.REGION
+                + ".maximum-size=1000",
+        "user.second-level-cache.regions." + SearchCacheBenchmarkTest.REGION
+                + ".time-to-live=10m"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SearchCacheBenchmarkTest {
+    static final String REGION = "benchmark-birth-date-range";
+    private static final int USERS = 50_000;
+    private static final int YEARS = 50;
+    private static final int FIRST_YEAR = 1950;
+    private static final int CACHED_RANGES = 100;
+    private static final int CACHED_RANGE_YEARS = 5;
+    private static final int HOT_RANGES = 20;
+    private static final int READS = 2_000;
+    private static final int[] READS_PER_WRITE = {0, 100, 10};
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @Test
+    void measureQueryCache() {
+        List<Long> ids = createUsers();
+        transaction = new TransactionTemplate(transactionManager);
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        reportHeap(sessionFactory);
+
+        System.out.printf("%-16s %10s %10s%n", "reads per write", "hit ratio", "reads/s");
+        for (int readsPerWrite : READS_PER_WRITE) {
+            sessionFactory.getCache().evictAllRegions();
+            reportReads(sessionFactory.getStatistics(), ids, readsPerWrite, true);
+        }
+        reportReads(sessionFactory.getStatistics(), ids, 0, false);
+    }
+
+    private void reportHeap(SessionFactory sessionFactory) {
+        sessionFactory.getCache().evictAllRegions();
+        long before = usedHeapAfterGc();
+        long rows = 0;
+        for (int i = 0; i < CACHED_RANGES; i++) {
+            int fromYear = FIRST_YEAR + i % (YEARS - CACHED_RANGE_YEARS);
+            rows += search(LocalDate.of(fromYear, 1, 1 + i / YEARS),
+                    LocalDate.of(fromYear + CACHED_RANGE_YEARS - 1, 12, 31), true).size();
+        }
+        long retained = usedHeapAfterGc() - before;
+        System.out.printf("%d cached ranges, %d rows: %.1f MB retained, %.0f bytes/row%n",
+                CACHED_RANGES, rows, retained / 1_048_576.0, (double) retained / rows);
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    private void reportReads(Statistics statistics, List<Long> ids, int readsPerWrite,
+                             boolean cached) {
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            if (readsPerWrite > 0 && i % readsPerWrite == 0) {
+                long id = ids.get(i % ids.size());
+                transaction.executeWithoutResult(status -> userRepository.updateEmailById(id,
+                        "benchmark" + id + "." + System.nanoTime() + "@example.com", null));
+            }
+            int year = FIRST_YEAR + i % HOT_RANGES;
+            search(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31), cached);
+        }
+        double readsPerSecond = READS / ((System.nanoTime() - start) / 1_000_000_000.0);
+        long hits = statistics.getQueryCacheHitCount();
+        long misses = statistics.getQueryCacheMissCount();
+        System.out.printf("%-16s %9.1f%% %10.0f%n", !cached ? "not cached"
+                        : readsPerWrite == 0 ? "no writes" : String.valueOf(readsPerWrite),
+                hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses), readsPerSecond);
+    }
+
+    private List<UserResponseDto> search(LocalDate fromDate, LocalDate toDate, boolean cached) {
+        return transaction.execute(status -> entityManager
+                .createQuery(UserRepository.SELECT_DTO
+                        + "WHERE u.birthDate BETWEEN :fromDate AND :toDate", UserResponseDto.class)
+                .setParameter("fromDate", fromDate)
+                .setParameter("toDate", toDate)
+                .setHint(HINT_CACHEABLE, cached)
+                .setHint(HINT_CACHE_REGION, REGION)
+                .getResultList());
+    }
+
+    private long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private List<Long> createUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("benchmark" + i + "@example.com");
+            user.setFirstName("John" + i);
+            user.setLastName("Doe" + i);
+            user.setBirthDate(LocalDate.of(FIRST_YEAR + i % YEARS, 1, 1).plusDays(i % 365));
+            user.setAddress(i + " Main St, Springfield");
+            user.setPhoneNumber("+38050" + (1_000_000 + i));
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream()
+                .map(User::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.lukian.userapi.benchmark;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.mapper.UserMapper;
+import com.lukian.userapi.mapper.impl.UserMapperImpl;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the DTO projection of the birth date search with the former
+ * entity query mapped by {@link UserMapper}, per {@value #USERS} rows.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true} against H2, with the query cache off,
+ * so every round reads the rows. Allocation is measured on the calling thread.
+ */
+@DataJpaTest
+@Import({UserMapperImpl.class, SecondLevelCacheConfig.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SearchProjectionBenchmarkTest {
+    private static final int USERS = 10_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final LocalDate FROM_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate TO_DATE = LocalDate.of(1999, 12, 31);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareSearchPaths() {
+        createUsers();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        Supplier<List<UserResponseDto>> entities = () -> transaction.execute(status ->
+                entityManager.createQuery("SELECT u FROM User u "
+                                + "WHERE u.birthDate BETWEEN :fromDate AND :toDate", User.class)
+                        .setParameter("fromDate", FROM_DATE)
+                        .setParameter("toDate", TO_DATE)
+                        .getResultList().stream()
+                        .map(userMapper::toDto)
+                        .toList());
+        Supplier<List<UserResponseDto>> projection = () -> transaction.execute(status ->
+                userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE));
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            entities.get();
+            projection.get();
+        }
+        report("entities + mapper", entities);
+        report("DTO projection", projection);
+    }
+
+    private void report(String name, Supplier<List<UserResponseDto>> search) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long rows = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            rows += search.get().size();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        double perRows = (double) USERS / rows;
+        System.out.printf("%-18s %8.2f ms, %8.2f MB allocated per %d rows%n", name,
+                elapsedNanos * perRows / 1_000_000.0,
+                allocatedBytes * perRows / (1024.0 * 1024.0), USERS);
+    }
+
+    private void createUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("benchmark" + i + "@example.com");
+            user.setFirstName("John");
+            user.setLastName("Doe");
+            user.setBirthDate(LocalDate.of(1950, 1, 1).plusDays(i));
+            user.setAddress("Address " + i);
+            user.setPhoneNumber("+380000000000");
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+    }
+}
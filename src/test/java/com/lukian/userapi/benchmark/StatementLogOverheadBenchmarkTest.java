@@ -0,0 +1,140 @@
+package com.lukian.userapi.benchmark;
+
+import com.lukian.userapi.datasource.StatementLog;
+import com.lukian.userapi.datasource.StatementLoggingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Measures what {@link StatementLoggingDataSource} adds per row: reading every column
+ * of a query result, and binding every parameter of a batched INSERT.
+ * <p>
+ * Runs only with {@code -Dbenchmark=true} against an in-memory H2 table of
+ * {@value #ROWS} users, over one connection, so the difference between the plain
+ * and the logging data source is the wrapping overhead. Allocation is measured
+ * on the calling thread.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StatementLogOverheadBenchmarkTest {
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 100;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+    private static final String SELECT_SQL = "SELECT id, email, first_name, last_name, "
+            + "birth_date, address, phone_number, version FROM users";
+    private static final String INSERT_SQL = "INSERT INTO users_copy (id, email, first_name, "
+            + "last_name, birth_date, address, phone_number, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Test
+    void measureOverhead() throws SQLException {
+        SingleConnectionDataSource plain = new SingleConnectionDataSource(
+                "jdbc:h2:mem:statement-log-benchmark", "sa", "", true);
+        createTables(new JdbcTemplate(plain));
+        DataSource logging = new StatementLoggingDataSource(plain, new StatementLog(
+                Duration.ofMinutes(1), 0, Integer.MAX_VALUE, new SimpleMeterRegistry()));
+
+        System.out.printf("%-20s %8s %12s%n", "", "ns/row", "bytes/row");
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            query(plain);
+            query(logging);
+            insert(plain);
+            insert(logging);
+        }
+        report("query", plain, this::query);
+        report("query, logged", logging, this::query);
+        report("batch insert", plain, this::insert);
+        report("batch insert, logged", logging, this::insert);
+    }
+
+    private void report(String name, DataSource dataSource, Round round) throws SQLException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long checksum = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            checksum += round.run(dataSource);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (checksum == 0) {
+            throw new IllegalStateException(name + " read nothing");
+        }
+        System.out.printf("%-20s %8.1f %12.1f%n", name,
+                (double) elapsedNanos / ROUNDS / ROWS,
+                (double) allocatedBytes / ROUNDS / ROWS);
+    }
+
+    private long query(DataSource dataSource) throws SQLException {
+        long checksum = 0;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(SELECT_SQL);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                checksum += resultSet.getLong(1);
+                checksum += resultSet.getString(2).length();
+                checksum += resultSet.getString(3).length();
+                checksum += resultSet.getString(4).length();
+                checksum += resultSet.getObject(5, LocalDate.class).getDayOfMonth();
+                checksum += resultSet.getString(6).length();
+                checksum += resultSet.getString(7).length();
+                checksum += resultSet.getLong(8);
+            }
+        }
+        return checksum;
+    }
+
+    private long insert(DataSource dataSource) throws SQLException {
+        long inserted = 0;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            connection.createStatement().execute("TRUNCATE TABLE users_copy");
+            for (int i = 0; i < ROWS; i++) {
+                statement.setLong(1, i);
+                statement.setString(2, "user" + i + "@example.com");
+                statement.setString(3, "John");
+                statement.setString(4, "Doe");
+                statement.setObject(5, LocalDate.of(1990, 1, 1));
+                statement.setString(6, "Address");
+                statement.setString(7, "+380000000000");
+                statement.setLong(8, 0);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    inserted += statement.executeBatch().length;
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private void createTables(JdbcTemplate jdbcTemplate) {
+        String columns = "(id BIGINT PRIMARY KEY, email VARCHAR(255), first_name VARCHAR(255), "
+                + "last_name VARCHAR(255), birth_date DATE, address VARCHAR(255), "
+                + "phone_number VARCHAR(255), version BIGINT)";
+        jdbcTemplate.execute("CREATE TABLE users " + columns);
+        jdbcTemplate.execute("CREATE TABLE users_copy " + columns);
+        for (int i = 0; i < ROWS; i++) {
+            jdbcTemplate.update(INSERT_SQL.replace("users_copy", "users"), i,
+                    "user" + i + "@example.com", "John" + i, "Doe" + i,
+                    LocalDate.of(1950, 1, 1).plusDays(i), "Address " + i, "+380000000000", 0);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        long run(DataSource dataSource) throws SQLException;
+    }
+}
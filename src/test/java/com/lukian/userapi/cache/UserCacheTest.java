@@ -0,0 +1,107 @@
+package com.lukian.userapi.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.lukian.userapi.dto.UserResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class UserCacheTest {
+    private static final UserResponseDto USER = new UserResponseDto(1L,
+            "john.doe@example.com", "John", "Doe", LocalDate.of(1990, 1, 1),
+            "Address", "123456789", 0L);
+
+    private MeterRegistry meterRegistry;
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_WithRepeatedReads_ShouldLoadOnceAndRecordHitsAndMisses() {
+        // When
+        userCache.get(USER.id(), id -> USER);
+        UserResponseDto cachedUser = userCache.get(USER.id(), id -> null);
+
+        // Then
+        assertEquals(USER, cachedUser);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void getAll_WithPartlyCachedUsers_ShouldLoadOnlyMissingOnesAndNotCacheAbsentUsers() {
+        // Given
+        userCache.get(USER.id(), id -> USER);
+        UserResponseDto otherUser = new UserResponseDto(2L, "jane.doe@example.com", "Jane",
+                "Doe", LocalDate.of(1992, 2, 2), null, null, 0L);
+        List<Set<? extends Long>> loadedIds = new ArrayList<>();
+
+        // When
+        Map<Long, UserResponseDto> users = userCache.getAll(List.of(1L, 2L, 3L), ids -> {
+            loadedIds.add(Set.copyOf(ids));
+            return Map.of(2L, otherUser);
+        });
+
+        // Then
+        assertEquals(Map.of(1L, USER, 2L, otherUser), users);
+        assertEquals(List.of(Set.of(2L, 3L)), loadedIds);
+        assertEquals(otherUser, userCache.get(2L, id -> null));
+        assertNull(userCache.get(3L, id -> null));
+    }
+
+    @Test
+    void evict_InsideTransaction_ShouldEvictAgainAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        userCache.evict(USER.id());
+        userCache.get(USER.id(), id -> USER);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+
+        // Then
+        assertNull(userCache.get(USER.id(), id -> null));
+    }
+
+    @Test
+    void put_InsideTransaction_ShouldCacheUserOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        userCache.put(USER);
+
+        // Then
+        assertNull(userCache.get(USER.id(), id -> null));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        assertEquals(USER, userCache.get(USER.id(), id -> null));
+    }
+}
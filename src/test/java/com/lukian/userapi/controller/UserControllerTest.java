@@ -1,40 +1,80 @@
 package com.lukian.userapi.controller;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.lukian.userapi.converter.ProtobufUserHttpMessageConverter;
+import com.lukian.userapi.converter.UserProtobufSchemas;
+import com.lukian.userapi.converter.UserStreamWriters;
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
 import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.dto.UserLookupRequestDto;
+import com.lukian.userapi.dto.UserLookupResponseDto;
+import com.lukian.userapi.dto.UserPageResponseDto;
 import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
 import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.dto.UserStatisticsDto;
+import com.lukian.userapi.exception.CustomGlobalExceptionHandler;
+import com.lukian.userapi.exception.EmailAlreadyExistsException;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.PreconditionFailedException;
 import com.lukian.userapi.exception.RegistrationException;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.service.UserRegistrationQueueService;
 import com.lukian.userapi.service.UserService;
+import com.lukian.userapi.util.RequestUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.MockitoAnnotations;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-@RunWith(SpringRunner.class)
 @WebMvcTest(UserController.class)
+@Import(SimpleMeterRegistry.class)
 public class UserControllerTest {
 
     @Autowired
@@ -43,13 +83,14 @@ public class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserRegistrationQueueService registrationQueueService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Before
-    public void setup() {
-        MockitoAnnotations.initMocks(this);
-    }
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Test
     public void testRegisterUser_Success() throws Exception {
@@ -77,6 +118,254 @@ public class UserControllerTest {
                         "User must be at least 18y.o. to be able to register"));
     }
 
+    @Test
+    public void testRegisterUser_RespondAsyncAmongOtherPreferences() throws Exception {
+        UserRegisterRequestDto requestDto = createUserRequestDto();
+        when(registrationQueueService.enqueue(requestDto)).thenReturn(new UserRegistrationStatusDto(
+                "tracking-id", UserRegistrationStatusDto.Status.QUEUED, null, List.of()));
+
+        for (String prefer : List.of("respond-async, wait=5", "handling=lenient, Respond-Async")) {
+            mockMvc.perform(post("/api/users")
+                            .header(RequestUtil.PREFER_HEADER, prefer)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(requestDto)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string(HttpHeaders.LOCATION,
+                            "http://localhost/api/users/registrations/tracking-id"))
+                    .andExpect(header().string(
+                            RequestUtil.PREFERENCE_APPLIED_HEADER,
+                            RequestUtil.RESPOND_ASYNC))
+                    .andExpect(jsonPath("$.trackingId").value("tracking-id"))
+                    .andExpect(jsonPath("$.status").value("QUEUED"));
+        }
+        verify(registrationQueueService, times(2)).enqueue(requestDto);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testRegisterUser_OtherPreferencesOnly() throws Exception {
+        UserRegisterRequestDto requestDto = createUserRequestDto();
+        UserResponseDto userResponseDto = createUserResponseDto(requestDto, 1L);
+        when(userService.save(requestDto)).thenReturn(userResponseDto);
+
+        mockMvc.perform(post("/api/users")
+                        .header(RequestUtil.PREFER_HEADER,
+                                "return=minimal, foo=\"respond-async, bar\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.email").value(userResponseDto.email()));
+        verifyNoInteractions(registrationQueueService);
+    }
+
+    @Test
+    public void testRegisterUsers_Success() throws Exception {
+        UserRegisterRequestDto requestDto = createUserRequestDto();
+        UserRegisterRequestDto underageRequestDto = new UserRegisterRequestDto(
+                "young@example.com", "John", "Doe",
+                LocalDate.now().minusYears(17),
+                "Address", "123456789");
+        UserResponseDto userResponseDto = createUserResponseDto(requestDto, 1L);
+        List<UserRegisterRequestDto> requestDtos = List.of(requestDto, underageRequestDto);
+        when(userService.saveAll(requestDtos))
+                .thenReturn(new BatchRegistrationResponseDto(1, 1, List.of(
+                        new BatchRegistrationItemDto(userResponseDto, List.of()),
+                        new BatchRegistrationItemDto(null, List.of(
+                                "User must be at least 18y.o. to be able to register"))
+                )));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[0].user.email").value(requestDto.email()))
+                .andExpect(jsonPath("$.items[1].errors[0]").value(
+                        "User must be at least 18y.o. to be able to register"));
+    }
+
+    @Test
+    public void testGetUsersByIds_Success() throws Exception {
+        UserResponseDto user2 = createUserResponseDto(createUserRequestDto(), 2L);
+        UserResponseDto user1 = createUserResponseDto(createUserRequestDto(), 1L);
+        when(userService.getAllByIds(List.of(2L, 3L, 1L)))
+                .thenReturn(new UserLookupResponseDto(List.of(user2, user1), List.of(3L)));
+
+        mockMvc.perform(get("/api/users").param("ids", "2,3,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(2)))
+                .andExpect(jsonPath("$.users[0].id").value(2))
+                .andExpect(jsonPath("$.users[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(3));
+    }
+
+    @Test
+    public void testGetUsersByIds_TooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, UserLookupRequestDto.MAX_IDS + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/api/users").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testLookupUsers_Success() throws Exception {
+        UserResponseDto user1 = createUserResponseDto(createUserRequestDto(), 1L);
+        when(userService.getAllByIds(List.of(1L, 5L)))
+                .thenReturn(new UserLookupResponseDto(List.of(user1), List.of(5L)));
+
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserLookupRequestDto(List.of(1L, 5L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(5));
+    }
+
+    @Test
+    public void testLookupUsers_EmptyIds() throws Exception {
+        double validationFailures = getValidationFailures("ids");
+
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserLookupRequestDto(List.of()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]").value("ids must not be empty"));
+
+        verifyNoInteractions(userService);
+        assertEquals(validationFailures + 1, getValidationFailures("ids"), 0);
+    }
+
+    @Test
+    public void testGetUsersWithUpcomingBirthdays_Success() throws Exception {
+        LocalDate fromDate = LocalDate.of(2024, 12, 28);
+        UserResponseDto user = createUserResponseDto(createUserRequestDto(), 1L);
+        when(userService.searchUpcomingBirthdays(fromDate, 7)).thenReturn(List.of(user));
+
+        mockMvc.perform(get("/api/users/birthdays")
+                        .param("from", fromDate.toString())
+                        .param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    public void testGetUsersWithUpcomingBirthdays_TooLongWindow() throws Exception {
+        double validationFailures = getValidationFailures("days");
+
+        mockMvc.perform(get("/api/users/birthdays").param("days", "366"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+        assertEquals(validationFailures + 1, getValidationFailures("days"), 0);
+    }
+
+    @Test
+    public void testGetStatistics_Success() throws Exception {
+        when(userService.getStatistics()).thenReturn(new UserStatisticsDto(3, 1,
+                Map.of(1990, 2L, 2000, 1L), Map.of("20-29", 1L, "30-39", 2L)));
+
+        mockMvc.perform(get("/api/users/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.active").value(3))
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.byBirthYear.1990").value(2))
+                .andExpect(jsonPath("$.byAgeBucket.30-39").value(2));
+    }
+
+    @Test
+    public void testGetUserById_Success() throws Exception {
+        Long userId = 1L;
+        UserResponseDto userResponseDto = createUserResponseDto(createUserRequestDto(), userId);
+        when(userService.getById(userId)).thenReturn(userResponseDto);
+
+        mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-json\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(jsonPath("$.id").value(userId))
+                .andExpect(jsonPath("$.email").value(userResponseDto.email()));
+    }
+
+    @Test
+    public void testGetUserById_NotModified() throws Exception {
+        Long userId = 1L;
+        UserResponseDto userResponseDto = createUserResponseDto(createUserRequestDto(), userId);
+        when(userService.getById(userId)).thenReturn(userResponseDto);
+
+        mockMvc.perform(get("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-json\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testGetUserById_Modified() throws Exception {
+        Long userId = 1L;
+        UserResponseDto userResponseDto = createUserResponseDto(createUserRequestDto(), userId);
+        when(userService.getById(userId)).thenReturn(userResponseDto);
+
+        mockMvc.perform(get("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0-json\""))
+                .andExpect(jsonPath("$.email").value(userResponseDto.email()));
+    }
+
+    @Test
+    public void testGetUserById_ETagPerFormat() throws Exception {
+        Long userId = 1L;
+        UserResponseDto userResponseDto = createUserResponseDto(createUserRequestDto(), userId);
+        when(userService.getById(userId)).thenReturn(userResponseDto);
+
+        String jsonETag = mockMvc.perform(get("/api/users/{id}", userId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cborETag = mockMvc.perform(get("/api/users/{id}", userId)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertEquals("\"0-json\"", jsonETag);
+        assertEquals("\"0-cbor\"", cborETag);
+    }
+
+    @Test
+    public void testGetUserById_NotAcceptable() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .accept(MediaType.TEXT_HTML))
+                .andExpect(status().isNotAcceptable());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testGetUserById_NotFound() throws Exception {
+        Long userId = 1L;
+        when(userService.getById(userId))
+                .thenThrow(new EntityNotFoundException("Cannot find user by id: " + userId));
+
+        mockMvc.perform(get("/api/users/{id}", userId))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.timestamp").exists())
+                .andExpect(jsonPath("$.status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.errors").value("Cannot find user by id: " + userId));
+    }
+
     @Test
     public void testUpdateUserEmailById_Success() throws Exception {
         Long userId = 1L;
@@ -93,8 +382,8 @@ public class UserControllerTest {
                 userId, newEmail, createUserRequestDto.firstName(),
                 createUserRequestDto.lastName(),
                 createUserRequestDto.birthDate(), createUserRequestDto.address(),
-                createUserRequestDto.phoneNumber());
-        when(userService.updateUserEmailById(userId, updateRequestDto))
+                createUserRequestDto.phoneNumber(), 1L);
+        when(userService.updateUserEmailById(userId, updateRequestDto, null))
                 .thenReturn(updatedUserResponseDto);
 
         mockMvc.perform(patch("/api/users/{id}", userId)
@@ -107,7 +396,56 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.birthDate").value(
                         createdUserResponseDto.birthDate().toString()))
                 .andExpect(jsonPath("$.address").value(createdUserResponseDto.address()))
-                .andExpect(jsonPath("$.phoneNumber").value(createdUserResponseDto.phoneNumber()));
+                .andExpect(jsonPath("$.phoneNumber").value(createdUserResponseDto.phoneNumber()))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-json\""));
+    }
+
+    @Test
+    public void testUpdateUserEmailById_IfMatch() throws Exception {
+        Long userId = 1L;
+        UpdateUserRequestDto updateRequestDto = new UpdateUserRequestDto("new.email@example.com");
+        UserResponseDto updatedUserResponseDto = new UserResponseDto(userId,
+                "new.email@example.com", "John", "Doe", LocalDate.of(1990, 1, 1),
+                "Address", "123456789", 4L);
+        when(userService.updateUserEmailById(userId, updateRequestDto, 3L))
+                .thenReturn(updatedUserResponseDto);
+
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequestDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-json\""));
+    }
+
+    @Test
+    public void testUpdateUserEmailById_StaleIfMatch() throws Exception {
+        Long userId = 1L;
+        UpdateUserRequestDto updateRequestDto = new UpdateUserRequestDto("new.email@example.com");
+        when(userService.updateUserEmailById(userId, updateRequestDto, 3L))
+                .thenThrow(new PreconditionFailedException(
+                        "User with id: 1 was modified, fetch it and retry"));
+
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequestDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value("PRECONDITION_FAILED"));
+    }
+
+    @Test
+    public void testUpdateUserEmailById_MalformedIfMatch() throws Exception {
+        UpdateUserRequestDto updateRequestDto = new UpdateUserRequestDto("new.email@example.com");
+
+        mockMvc.perform(patch("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequestDto)))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(userService);
     }
 
     @Test
@@ -131,6 +469,23 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.errors").value("email invalid email format"));
     }
 
+    @Test
+    public void testUpdateUserEmailById_EmailTaken() throws Exception {
+        Long userId = 1L;
+        UpdateUserRequestDto updateRequestDto = new UpdateUserRequestDto("taken@example.com");
+        when(userService.updateUserEmailById(userId, updateRequestDto, null))
+                .thenThrow(new EmailAlreadyExistsException(
+                        "email taken@example.com is already taken"));
+
+        mockMvc.perform(patch("/api/users/{id}", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("CONFLICT"))
+                .andExpect(jsonPath("$.errors").value(
+                        "email taken@example.com is already taken"));
+    }
+
     @Test
     public void testUpdateCarById_Success() throws Exception {
         Long userId = 1L;
@@ -151,11 +506,12 @@ public class UserControllerTest {
 
         UserResponseDto updatedUserResponseDto = new UserResponseDto(
                 userId, newEmail, newFirstName, newLastName, newBirthDate,
-                newAddress, newPhoneNumber);
-        when(userService.updateUserDataById(userId, updateRequestDto))
+                newAddress, newPhoneNumber, 2L);
+        when(userService.updateUserDataById(userId, updateRequestDto, 1L))
                 .thenReturn(updatedUserResponseDto);
 
         mockMvc.perform(put("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_MATCH, "\"1-json\"")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateRequestDto)))
                 .andExpect(status().isOk())
@@ -164,7 +520,23 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.lastName").value(newLastName))
                 .andExpect(jsonPath("$.birthDate").value(newBirthDate.toString()))
                 .andExpect(jsonPath("$.address").value(newAddress))
-                .andExpect(jsonPath("$.phoneNumber").value(newPhoneNumber));
+                .andExpect(jsonPath("$.phoneNumber").value(newPhoneNumber))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-json\""));
+    }
+
+    @Test
+    public void testUpdateCarById_ConcurrentModification() throws Exception {
+        Long userId = 1L;
+        UserRegisterRequestDto updateRequestDto = createUserRequestDto();
+        when(userService.updateUserDataById(userId, updateRequestDto, null))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, userId));
+
+        mockMvc.perform(put("/api/users/{id}", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errors").value(
+                        "User with id: 1 was modified concurrently, fetch it and retry"));
     }
 
     @Test
@@ -176,12 +548,23 @@ public class UserControllerTest {
         when(userService.save(any(UserRegisterRequestDto.class)))
                 .thenReturn(createdUserResponseDto);
 
-        doNothing().when(userService).deleteById(userId);
+        doNothing().when(userService).deleteById(userId, null);
 
         mockMvc.perform(delete("/api/users/{id}", userId))
                 .andExpect(status().isNoContent());
 
-        verify(userService, times(1)).deleteById(userId);
+        verify(userService, times(1)).deleteById(userId, null);
+    }
+
+    @Test
+    public void testDeleteCarById_NotFound() throws Exception {
+        Long userId = 1L;
+        doThrow(new EntityNotFoundException("Cannot find user by id: " + userId))
+                .when(userService).deleteById(userId, null);
+
+        mockMvc.perform(delete("/api/users/{id}", userId))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errors").value("Cannot find user by id: " + userId));
     }
 
     @Test
@@ -213,6 +596,199 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[2].email").value(userResponseDto3.email()));
     }
 
+    @Test
+    public void testGetUsersPageByBirthDateRange_Success() throws Exception {
+        UserResponseDto userResponseDto1 = createUserResponseDto(createUserRequestDto(), 1L);
+        UserResponseDto userResponseDto2 = createUserResponseDto(createUserRequestDto(), 2L);
+
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        when(userService.searchByBirthDateRange(fromDate, toDate, "cursor", 2))
+                .thenReturn(new UserPageResponseDto(
+                        List.of(userResponseDto1, userResponseDto2), "next"));
+
+        mockMvc.perform(get("/api/users/search")
+                        .param("from", fromDate.toString())
+                        .param("to", toDate.toString())
+                        .param("limit", "2")
+                        .param("cursor", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(2)))
+                .andExpect(jsonPath("$.users[0].id").value(1))
+                .andExpect(jsonPath("$.users[1].id").value(2))
+                .andExpect(jsonPath("$.next").value("next"));
+    }
+
+    @Test
+    public void testGetUsersPageByBirthDateRange_LimitOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/users/search")
+                        .param("from", "1990-01-01")
+                        .param("to", "2000-12-31")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testStreamUsersByBirthDateRange_Success() throws Exception {
+        UserResponseDto userResponseDto1 = createUserResponseDto(createUserRequestDto(), 1L);
+        UserResponseDto userResponseDto2 = createUserResponseDto(createUserRequestDto(), 2L);
+
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        doAnswer(invocation -> {
+            Consumer<UserResponseDto> consumer = invocation.getArgument(2);
+            consumer.accept(userResponseDto1);
+            consumer.accept(userResponseDto2);
+            return null;
+        }).when(userService).streamByBirthDateRange(eq(fromDate), eq(toDate), any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/search")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("from", fromDate.toString())
+                        .param("to", toDate.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(userResponseDto1) + "\n"
+                                + objectMapper.writeValueAsString(userResponseDto2) + "\n"));
+    }
+
+    @Test
+    public void testGetUsersByBirthDateRange_Cbor() throws Exception {
+        List<UserResponseDto> users = List.of(
+                createUserResponseDto(createUserRequestDto(), 1L),
+                createUserResponseDto(createUserRequestDto(), 2L));
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        when(userService.searchByBirthDateRange(fromDate, toDate)).thenReturn(users);
+
+        byte[] body = mockMvc.perform(get("/api/users/search")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .param("from", fromDate.toString())
+                        .param("to", toDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<UserResponseDto> decodedUsers = new ObjectMapper(new CBORFactory())
+                .findAndRegisterModules()
+                .readValue(body, new TypeReference<List<UserResponseDto>>() {});
+        assertEquals(withoutVersion(users), decodedUsers);
+    }
+
+    @Test
+    public void testGetUsersPageByBirthDateRange_Protobuf() throws Exception {
+        List<UserResponseDto> users = List.of(
+                createUserResponseDto(createUserRequestDto(), 1L),
+                createUserResponseDto(createUserRequestDto(), 2L));
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        when(userService.searchByBirthDateRange(fromDate, toDate, null, 2))
+                .thenReturn(new UserPageResponseDto(users, "next"));
+
+        byte[] body = mockMvc.perform(get("/api/users/search")
+                        .accept(ProtobufUserHttpMessageConverter.PROTOBUF)
+                        .param("from", fromDate.toString())
+                        .param("to", toDate.toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProtobufUserHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        UserPageResponseDto page = protobufMapper().readerFor(UserPageResponseDto.class)
+                .with(UserProtobufSchemas.USERS)
+                .readValue(body);
+        assertEquals(new UserPageResponseDto(withoutVersion(users), "next"), page);
+    }
+
+    @Test
+    public void testStreamUsersByBirthDateRange_SmileSequence() throws Exception {
+        List<UserResponseDto> users = List.of(
+                createUserResponseDto(createUserRequestDto(), 1L),
+                createUserResponseDto(createUserRequestDto(), 2L));
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        stubStream(fromDate, toDate, users);
+
+        byte[] body = performStream(fromDate, toDate, UserStreamWriters.SMILE_SEQ);
+
+        List<UserResponseDto> decodedUsers = new ObjectMapper(new SmileFactory())
+                .findAndRegisterModules()
+                .readerFor(UserResponseDto.class)
+                .<UserResponseDto>readValues(body)
+                .readAll();
+        assertEquals(withoutVersion(users), decodedUsers);
+    }
+
+    @Test
+    public void testStreamUsersByBirthDateRange_ProtobufDelimited() throws Exception {
+        List<UserResponseDto> users = List.of(
+                createUserResponseDto(createUserRequestDto(), 1L),
+                createUserResponseDto(createUserRequestDto(), 300L));
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        stubStream(fromDate, toDate, users);
+
+        byte[] body = performStream(fromDate, toDate, UserStreamWriters.PROTOBUF_DELIMITED);
+
+        List<UserResponseDto> decodedUsers = new ArrayList<>();
+        ObjectReader reader = protobufMapper().readerFor(UserResponseDto.class)
+                .with(UserProtobufSchemas.USER);
+        ByteArrayInputStream input = new ByteArrayInputStream(body);
+        while (input.available() > 0) {
+            int length = 0;
+            int shift = 0;
+            int nextByte;
+            do {
+                nextByte = input.read();
+                length |= (nextByte & 0x7F) << shift;
+                shift += 7;
+            } while ((nextByte & 0x80) != 0);
+            decodedUsers.add(reader.readValue(input.readNBytes(length)));
+        }
+        assertEquals(withoutVersion(users), decodedUsers);
+    }
+
+    private void stubStream(LocalDate fromDate, LocalDate toDate, List<UserResponseDto> users) {
+        doAnswer(invocation -> {
+            Consumer<UserResponseDto> consumer = invocation.getArgument(2);
+            users.forEach(consumer);
+            return null;
+        }).when(userService).streamByBirthDateRange(eq(fromDate), eq(toDate), any());
+    }
+
+    private byte[] performStream(LocalDate fromDate, LocalDate toDate, MediaType type)
+            throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/search")
+                        .accept(type)
+                        .param("from", fromDate.toString())
+                        .param("to", toDate.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(type))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private ObjectMapper protobufMapper() {
+        return new ObjectMapper(new ProtobufFactory()).findAndRegisterModules();
+    }
+
+    private List<UserResponseDto> withoutVersion(List<UserResponseDto> users) {
+        return users.stream()
+                .map(user -> new UserResponseDto(user.id(), user.email(), user.firstName(),
+                        user.lastName(), user.birthDate(), user.address(),
+                        user.phoneNumber(), null))
+                .toList();
+    }
+
     private UserRegisterRequestDto createUserRequestDto() {
         return new UserRegisterRequestDto(
                 "john.doe@example.com", "John", "Doe",
@@ -224,7 +800,7 @@ public class UserControllerTest {
         return new UserResponseDto(
                 id, requestDto.email(), requestDto.firstName(),
                 requestDto.lastName(), requestDto.birthDate(),
-                requestDto.address(), requestDto.phoneNumber());
+                requestDto.address(), requestDto.phoneNumber(), 0L);
     }
 
     private void performPostRequestAndVerify(
@@ -237,4 +813,12 @@ public class UserControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.email").value(userResponseDto.email()));
     }
+
+    private double getValidationFailures(String field) {
+        Counter counter = meterRegistry
+                .find(CustomGlobalExceptionHandler.VALIDATION_FAILURES_METRIC)
+                .tag("field", field)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
 }
@@ -0,0 +1,134 @@
+package com.lukian.userapi.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Two embedded databases stand in for the primary and the replica;
+ * each of them knows its own name, so every query tells where it was routed.
+ */
+public class ReadWriteRoutingDataSourceTest {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private ReadYourWritesTracker tracker;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWriteTransaction;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private ReplicaReads replicaReads;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                createDatabase(PRIMARY), List.of(createDatabase(REPLICA)), tracker));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager =
+                new DataSourceTransactionManager(dataSource);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ReplicaReads());
+        proxyFactory.addAspect(ReadReplicaAspect.class);
+        replicaReads = proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.unbind();
+    }
+
+    @Test
+    void readOnlyTransaction_OfReadReplicaMethod_ShouldBeRoutedToReplica() {
+        assertEquals(REPLICA, replicaReads.read(
+                () -> readOnlyTransaction.execute(status -> queryDatabaseName())));
+    }
+
+    @Test
+    void readOnlyTransaction_OutsideReadReplicaMethod_ShouldBeRoutedToPrimary() {
+        assertEquals(PRIMARY, readOnlyTransaction.execute(status -> queryDatabaseName()));
+    }
+
+    @Test
+    void readWriteTransactionAndNoTransaction_ShouldBeRoutedToPrimary() {
+        assertEquals(PRIMARY, replicaReads.read(
+                () -> readWriteTransaction.execute(status -> queryDatabaseName())));
+        assertEquals(PRIMARY, replicaReads.read(this::queryDatabaseName));
+    }
+
+    @Test
+    void readOnlyTransaction_AfterClientWrite_ShouldBeRoutedToPrimary() {
+        // Given
+        tracker.bind("client-1");
+        tracker.recordWrite();
+
+        // When & Then
+        assertEquals(PRIMARY, replicaReads.read(
+                () -> readOnlyTransaction.execute(status -> queryDatabaseName())));
+        tracker.bind("client-2");
+        assertEquals(REPLICA, replicaReads.read(
+                () -> readOnlyTransaction.execute(status -> queryDatabaseName())));
+    }
+
+    @Test
+    void readOnlyTransactions_WithSeveralReplicas_ShouldBeSpreadRoundRobin() {
+        // Given
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                createDatabase(PRIMARY),
+                List.of(createDatabase("replica-a"), createDatabase("replica-b")), tracker));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(true);
+
+        // When
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            names.add(replicaReads.read(() -> transaction.execute(status ->
+                    template.queryForObject("SELECT name FROM database_name", String.class))));
+        }
+
+        // Then
+        assertEquals(List.of("replica-a", "replica-b", "replica-a", "replica-b"), names);
+    }
+
+    private String queryDatabaseName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM database_name", String.class);
+    }
+
+    private DataSource createDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS database_name (name VARCHAR(50))");
+        template.update("DELETE FROM database_name");
+        template.update("INSERT INTO database_name (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    static class ReplicaReads {
+
+        @ReadReplica
+        public <T> T read(Supplier<T> reader) {
+            return reader.get();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.lukian.userapi.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class StatementLoggingDataSourceTest {
+    private static final String SELECT_SQL = "SELECT id FROM items WHERE id > ?";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(StatementLog.class);
+
+    private ListAppender<ILoggingEvent> appender;
+
+    private MeterRegistry meterRegistry;
+
+    private DataSource targetDataSource;
+
+    @BeforeEach
+    void setUp() {
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        meterRegistry = new SimpleMeterRegistry();
+        targetDataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(targetDataSource);
+        jdbcTemplate.execute("CREATE TABLE items (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO items VALUES (1), (2), (3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void query_ShouldBeRecordedWithFetchedRowsWhenResultSetIsClosed() throws SQLException {
+        // Given
+        DataSource dataSource = createDataSource(Duration.ofMinutes(1), 0, 10);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setLong(1, 1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    resultSet.getLong(1);
+                }
+            }
+        }
+
+        // Then
+        assertEquals(1, meterRegistry.get(StatementLog.STATEMENTS_METRIC)
+                .tag("type", "query").timer().count());
+        assertEquals(2, meterRegistry.get(StatementLog.ROWS_METRIC)
+                .tag("type", "query").summary().totalAmount());
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void batch_ShouldBeRecordedOnceWithChangedRows() throws SQLException {
+        // Given
+        DataSource dataSource = createDataSource(Duration.ofMinutes(1), 0, 10);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO items VALUES (?)")) {
+            for (long id = 4; id <= 6; id++) {
+                statement.setLong(1, id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        // Then
+        assertEquals(1, meterRegistry.get(StatementLog.STATEMENTS_METRIC)
+                .tag("type", "batch").timer().count());
+        assertEquals(3, meterRegistry.get(StatementLog.ROWS_METRIC)
+                .tag("type", "batch").summary().totalAmount());
+    }
+
+    @Test
+    void slowStatement_ShouldBeLoggedWithSqlAndRows() {
+        // Given
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(createDataSource(Duration.ZERO, 0, 10));
+
+        // When
+        jdbcTemplate.queryForList(SELECT_SQL, Long.class, 0);
+
+        // Then
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Level.WARN, event.getLevel());
+        assertTrue(event.getFormattedMessage().startsWith("Slow query took"));
+        assertTrue(event.getFormattedMessage().endsWith("3 rows: " + SELECT_SQL));
+    }
+
+    @Test
+    void sampledStatement_ShouldBeLoggedAtInfoLevel() {
+        // Given
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                createDataSource(Duration.ofMinutes(1), 1, 10));
+
+        // When
+        jdbcTemplate.update("UPDATE items SET id = id + 10 WHERE id = ?", 3);
+
+        // Then
+        assertEquals(List.of(Level.INFO), appender.list.stream()
+                .map(ILoggingEvent::getLevel).toList());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("Sampled update"));
+    }
+
+    @Test
+    void repeatedStatementWithinRequest_ShouldBeReportedWhenRequestFinishes() {
+        // Given
+        StatementLog statementLog = new StatementLog(Duration.ofMinutes(1), 0, 3, meterRegistry);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new StatementLoggingDataSource(targetDataSource, statementLog));
+        statementLog.startRequest();
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.queryForList(SELECT_SQL, Long.class, id);
+        }
+        jdbcTemplate.queryForList("SELECT COUNT(*) FROM items", Long.class);
+
+        // When
+        statementLog.finishRequest("GET /api/users");
+
+        // Then
+        assertEquals(List.of("Statement executed 3 times in GET /api/users, "
+                        + "possible N+1 query: " + SELECT_SQL),
+                appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList());
+    }
+
+    @Test
+    void statementsOutsideRequest_ShouldNotBeReported() {
+        // Given
+        StatementLog statementLog = new StatementLog(Duration.ofMinutes(1), 0, 1, meterRegistry);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new StatementLoggingDataSource(targetDataSource, statementLog));
+
+        // When
+        jdbcTemplate.queryForList(SELECT_SQL, Long.class, 0);
+        statementLog.finishRequest("GET /api/users");
+
+        // Then
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private DataSource createDataSource(Duration slowThreshold, double sampleRate,
+                                        int repeatedStatementThreshold) {
+        return new StatementLoggingDataSource(targetDataSource, new StatementLog(
+                slowThreshold, sampleRate, repeatedStatementThreshold, meterRegistry));
+    }
+}
@@ -0,0 +1,295 @@
+package com.lukian.userapi.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukian.userapi.util.RequestUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class IdempotencyFilterTest {
+    private static final String BODY = "{\"email\":\"john@example.com\"}";
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new IdempotencyFilter(
+                new InMemoryIdempotencyStore(1024 * 1024, Duration.ofMinutes(1)),
+                Duration.ofSeconds(5), 1024, new ObjectMapper().findAndRegisterModules(),
+                meterRegistry);
+    }
+
+    @Test
+    void retryWithSameKey_ShouldReplayResponseWithoutExecuting() throws Exception {
+        // Given
+        MockHttpServletResponse first = perform(request("key", BODY),
+                respondWith(HttpStatus.CREATED));
+
+        // When
+        MockHttpServletResponse retry = perform(request("key", BODY),
+                respondWith(HttpStatus.CREATED));
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED.value(), retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("\"0\"", retry.getHeader(HttpHeaders.ETAG));
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, getRequests("replayed"));
+    }
+
+    @Test
+    void retryOfQueuedRegistration_ShouldReplayLocationAndAppliedPreference() throws Exception {
+        // Given
+        MockFilterChain queue = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException {
+                HttpServletResponse httpResponse = (HttpServletResponse) response;
+                httpResponse.setHeader(HttpHeaders.LOCATION, "/api/users/registrations/1");
+                httpResponse.setHeader(RequestUtil.PREFERENCE_APPLIED_HEADER,
+                        RequestUtil.RESPOND_ASYNC);
+                write(request, httpResponse, HttpStatus.ACCEPTED);
+            }
+        };
+        perform(respondAsync(request("key", BODY)), queue);
+
+        // When
+        MockHttpServletResponse retry = perform(respondAsync(request("key", BODY)), queue);
+        final MockHttpServletResponse synchronous = perform(request("key", BODY),
+                respondWith(HttpStatus.CREATED));
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.ACCEPTED.value(), retry.getStatus());
+        assertEquals("/api/users/registrations/1", retry.getHeader(HttpHeaders.LOCATION));
+        assertEquals(RequestUtil.RESPOND_ASYNC, retry.getHeader(
+                RequestUtil.PREFERENCE_APPLIED_HEADER));
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), synchronous.getStatus());
+    }
+
+    @Test
+    void retryOfResponseWithLargeBody_ShouldReplayStatusAndHeadersOnly() throws Exception {
+        // Given
+        String largeBody = "[\"" + "x".repeat(2048) + "\"]";
+        perform(request("key", largeBody), respondWith(HttpStatus.OK));
+
+        // When
+        MockHttpServletResponse retry = perform(request("key", largeBody),
+                respondWith(HttpStatus.OK));
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.OK.value(), retry.getStatus());
+        assertEquals("\"0\"", retry.getHeader(HttpHeaders.ETAG));
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(0, retry.getContentLength());
+        assertNull(retry.getContentType());
+    }
+
+    @Test
+    void nonBlockingReader_ShouldGetBufferedBodyRightAway() throws Exception {
+        // Given
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean[] allDataRead = new boolean[1];
+        MockFilterChain nonBlocking = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException {
+                ServletInputStream inputStream = request.getInputStream();
+                inputStream.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        while (inputStream.isReady() && !inputStream.isFinished()) {
+                            body.write(inputStream.read());
+                        }
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        allDataRead[0] = true;
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        throw new IllegalStateException(throwable);
+                    }
+                });
+                ((HttpServletResponse) response).setStatus(HttpStatus.CREATED.value());
+            }
+        };
+
+        // When
+        MockHttpServletResponse response = perform(request("key", BODY), nonBlocking);
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+        assertEquals(BODY, body.toString(StandardCharsets.UTF_8));
+        assertTrue(allDataRead[0]);
+    }
+
+    @Test
+    void keyReusedForAnotherBody_ShouldBeUnprocessable() throws Exception {
+        // Given
+        perform(request("key", BODY), respondWith(HttpStatus.CREATED));
+
+        // When
+        MockHttpServletResponse reused = perform(request("key", "{\"email\":\"other@e.com\"}"),
+                respondWith(HttpStatus.CREATED));
+        MockHttpServletResponse otherClient = perform(request("key", BODY, "other"),
+                respondWith(HttpStatus.CREATED));
+
+        // Then
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), reused.getStatus());
+        assertEquals(HttpStatus.CREATED.value(), otherClient.getStatus());
+        assertEquals(2, executions.get());
+        assertEquals(1, getRequests("mismatched"));
+    }
+
+    @Test
+    void serverError_ShouldReleaseKeyForRetry() throws Exception {
+        // Given
+        perform(request("key", BODY), respondWith(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When
+        MockHttpServletResponse retry = perform(request("key", BODY),
+                respondWith(HttpStatus.CREATED));
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), retry.getStatus());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicates_ShouldBeCoalescedIntoOneExecution() throws Exception {
+        // Given
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockFilterChain slowChain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException {
+                executing.countDown();
+                await(release);
+                write(request, (HttpServletResponse) response, HttpStatus.CREATED);
+            }
+        };
+        final CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(
+                () -> performUnchecked(request("key", BODY), slowChain));
+        assertTrue(executing.await(5, TimeUnit.SECONDS));
+
+        // When
+        final CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(
+                () -> performUnchecked(request("key", BODY), respondWith(HttpStatus.CREATED)));
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), first.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.CREATED.value(), replayed.getStatus());
+        assertEquals("true", replayed.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    private MockFilterChain respondWith(HttpStatus status) {
+        return new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException {
+                write(request, (HttpServletResponse) response, status);
+            }
+        };
+    }
+
+    private void write(ServletRequest request, HttpServletResponse response, HttpStatus status)
+            throws IOException {
+        final String body = new String(request.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, "\"0\"");
+        response.getWriter().write("{\"execution\":" + executions.incrementAndGet()
+                + ",\"request\":" + body + "}");
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, MockFilterChain chain)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse performUnchecked(MockHttpServletRequest request,
+                                                     MockFilterChain chain) {
+        try {
+            return perform(request, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletRequest request(String key, String body) {
+        return request(key, body, "client");
+    }
+
+    private MockHttpServletRequest request(String key, String body, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setRemoteAddr(client);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private MockHttpServletRequest respondAsync(MockHttpServletRequest request) {
+        request.addHeader(RequestUtil.PREFER_HEADER, RequestUtil.RESPOND_ASYNC);
+        return request;
+    }
+
+    private double getRequests(String outcome) {
+        return meterRegistry.get(IdempotencyFilter.REQUESTS_METRIC)
+                .tag("outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.lukian.userapi.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class JdbcIdempotencyStoreTest {
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = createStore(NOW);
+    }
+
+    @Test
+    void claimedKey_ShouldBeInProgressUntilCompleted() {
+        // Given
+        store.claim("key", "fingerprint");
+
+        // When
+        Optional<IdempotencyStore.Claim> inProgress = store.claim("key", "fingerprint");
+        store.complete("key", new IdempotentResponse(202, "application/json", null,
+                "/api/users/registrations/1", "respond-async",
+                "{}".getBytes(StandardCharsets.UTF_8)));
+        Optional<IdempotencyStore.Claim> completed = store.claim("key", "fingerprint");
+
+        // Then
+        assertTrue(inProgress.isPresent());
+        assertNull(inProgress.get().response());
+        assertEquals(202, completed.orElseThrow().response().status());
+        assertNull(completed.get().response().etag());
+        assertEquals("/api/users/registrations/1", completed.get().response().location());
+        assertEquals("respond-async", completed.get().response().preferenceApplied());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8),
+                completed.get().response().body());
+    }
+
+    @Test
+    void releasedKey_ShouldBeClaimedAgain() {
+        // Given
+        store.claim("key", "fingerprint");
+
+        // When
+        store.release("key");
+
+        // Then
+        assertTrue(store.claim("key", "other").isEmpty());
+    }
+
+    @Test
+    void expiredKey_ShouldBeClaimedAgainAndPurged() {
+        // Given
+        store.claim("key", "fingerprint");
+        store.claim("other", "fingerprint");
+        JdbcIdempotencyStore later = createStore(NOW.plus(Duration.ofHours(2)));
+
+        // When
+        Optional<IdempotencyStore.Claim> claim = later.claim("key", "fingerprint");
+        int purged = later.purgeExpired();
+
+        // Then
+        assertTrue(claim.isEmpty());
+        assertEquals(1, purged);
+    }
+
+    private JdbcIdempotencyStore createStore(Instant now) {
+        return new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,145 @@
+package com.lukian.userapi.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Every repository call runs in its own transaction, as it does in the application:
+ * entries put into the second-level cache are only read by later transactions.
+ */
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:users;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class UserRepositoryCacheTest {
+    private static final LocalDate FROM_DATE = LocalDate.of(1970, 1, 1);
+    private static final LocalDate TO_DATE = LocalDate.of(1970, 12, 31);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        insertUser(101L, LocalDate.of(1970, 3, 1), false);
+        insertUser(102L, LocalDate.of(1970, 6, 1), false);
+        insertUser(103L, LocalDate.of(1970, 9, 1), true);
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE id > 100");
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @Test
+    void findDtosByBirthDateBetween_WhenRepeated_ShouldNotBeCached() {
+        // Given
+        userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE);
+
+        // When
+        List<UserResponseDto> users = userRepository.findDtosByBirthDateBetween(
+                FROM_DATE, TO_DATE);
+
+        // Then
+        assertEquals(List.of(101L, 102L), users.stream().map(UserResponseDto::id).toList());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getQueryCachePutCount());
+    }
+
+    @Test
+    void softDeleteById_ShouldEvictCachedUser() {
+        // Given
+        userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE);
+        userRepository.findById(101L).orElseThrow();
+        userRepository.findById(101L).orElseThrow();
+
+        // When
+        userRepository.softDeleteById(101L, null);
+
+        // Then
+        assertEquals(1, statistics.getDomainDataRegionStatistics(User.CACHE_REGION)
+                .getHitCount());
+        assertTrue(userRepository.findById(101L).isEmpty());
+        assertEquals(List.of(102L), userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE)
+                .stream().map(UserResponseDto::id).toList());
+    }
+
+    @Test
+    void delete_ShouldSoftDeleteCheckingVersionAndEvictCachedUser() {
+        // Given
+        userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE);
+        User user = userRepository.findById(102L).orElseThrow();
+
+        // When
+        userRepository.delete(user);
+
+        // Then
+        assertTrue(userRepository.findById(102L).isEmpty());
+        assertEquals(List.of(101L), userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE)
+                .stream().map(UserResponseDto::id).toList());
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT version FROM users WHERE id = 102 AND is_deleted = true", Long.class));
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void statistics_ShouldNotBeLoggedPerSession(CapturedOutput output) {
+        // When
+        userRepository.findById(101L).orElseThrow();
+        userRepository.findDtosByBirthDateBetween(FROM_DATE, TO_DATE);
+
+        // Then
+        assertEquals(2, statistics.getSessionOpenCount());
+        assertFalse(output.getAll().contains("Session Metrics"));
+    }
+
+    private void insertUser(Long id, LocalDate birthDate, boolean deleted) {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date, "
+                        + "is_deleted) VALUES (?, ?, ?, ?, ?, ?)",
+                id, "user" + id + "@example.com", "John", "Doe", birthDate, deleted);
+    }
+}
@@ -0,0 +1,286 @@
+package com.lukian.userapi.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.statistics.BirthDateCount;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the Liquibase changelog against H2 in MySQL compatibility mode,
+ * so both the queries and the indexes created by the migrations are checked.
+ * The second-level cache is configured as in the application and emptied before every test,
+ * since the users inserted with JDBC are not known to it.
+ */
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:users;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class UserRepositoryTest {
+    private static final String BIRTH_DATE_INDEX = "idx_users_is_deleted_birth_date_id";
+    private static final String BIRTH_MONTH_DAY_INDEX = "idx_users_is_deleted_birth_month_day";
+    private static final LocalDate FROM_DATE = LocalDate.of(1970, 1, 1);
+    private static final LocalDate TO_DATE = LocalDate.of(1970, 12, 31);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        insertUser(101L, LocalDate.of(1970, 3, 1), false);
+        insertUser(102L, LocalDate.of(1970, 3, 1), false);
+        insertUser(103L, LocalDate.of(1970, 3, 1), true);
+        insertUser(104L, LocalDate.of(1970, 6, 1), false);
+        insertUser(105L, LocalDate.of(1971, 1, 1), false);
+    }
+
+    @Test
+    void birthDateRangeQuery_ShouldUseSoftDeleteBirthDateIndex() {
+        // When
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT * FROM users u "
+                        + "WHERE u.birth_date BETWEEN ? AND ? AND (u.is_deleted = false)",
+                String.class, FROM_DATE, TO_DATE).toLowerCase(Locale.ROOT);
+
+        // Then
+        assertTrue(plan.contains(BIRTH_DATE_INDEX), plan);
+        assertFalse(plan.contains("tablescan"), plan);
+    }
+
+    @Test
+    void birthMonthDayQuery_ShouldUseSoftDeleteBirthMonthDayIndex() {
+        // When
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT * FROM users u WHERE u.is_deleted = false "
+                        + "AND u.birth_month_day BETWEEN ? AND ?",
+                String.class, 1220, 1231).toLowerCase(Locale.ROOT);
+
+        // Then
+        assertTrue(plan.contains(BIRTH_MONTH_DAY_INDEX), plan);
+        assertFalse(plan.contains("tablescan"), plan);
+    }
+
+    @Test
+    void findDtosByBirthMonthDayRanges_ShouldMatchAnyYearAndOrderByUpcomingBirthday() {
+        // Given
+        insertUser(106L, LocalDate.of(1999, 12, 31), false);
+        insertUser(107L, LocalDate.of(1972, 2, 29), false);
+
+        // When
+        List<UserResponseDto> users = userRepository.findDtosByBirthMonthDayRanges(
+                1201, 1231, 101, 301);
+
+        // Then (users seeded by the changelog are left out)
+        assertEquals(List.of(106L, 105L, 107L, 101L, 102L), users.stream()
+                .map(UserResponseDto::id)
+                .filter(id -> id > 100)
+                .toList());
+        assertEquals(new UserResponseDto(106L, "user106@example.com", "John", "Doe",
+                LocalDate.of(1999, 12, 31), null, null, 0L), users.get(0));
+    }
+
+    @Test
+    void findDtosByBirthDateBetween_ShouldSkipSoftDeletedUsers() {
+        // When
+        List<UserResponseDto> users = userRepository.findDtosByBirthDateBetween(
+                FROM_DATE, TO_DATE);
+
+        // Then
+        assertEquals(List.of(101L, 102L, 104L), users.stream().map(UserResponseDto::id).toList());
+        assertEquals(new UserResponseDto(101L, "user101@example.com", "John", "Doe",
+                LocalDate.of(1970, 3, 1), null, null, 0L), users.get(0));
+    }
+
+    @Test
+    void streamDtosByBirthDateBetween_ShouldSkipSoftDeletedUsers() {
+        // When
+        List<Long> ids;
+        try (Stream<UserResponseDto> users = userRepository.streamDtosByBirthDateBetween(
+                FROM_DATE, TO_DATE)) {
+            ids = users.map(UserResponseDto::id).toList();
+        }
+
+        // Then
+        assertEquals(List.of(101L, 102L, 104L), ids);
+    }
+
+    @Test
+    void findDtoPageAfter_ShouldContinueFromLastBirthDateAndId() {
+        // Given
+        List<UserResponseDto> firstPage = userRepository.findDtoPageByBirthDateBetween(
+                FROM_DATE, TO_DATE, Limit.of(1));
+        UserResponseDto last = firstPage.get(0);
+
+        // When
+        List<UserResponseDto> secondPage = userRepository.findDtoPageAfter(FROM_DATE, TO_DATE,
+                last.birthDate(), last.id(), Limit.of(5));
+
+        // Then
+        assertEquals(List.of(101L), firstPage.stream().map(UserResponseDto::id).toList());
+        assertEquals(List.of(102L, 104L), secondPage.stream().map(UserResponseDto::id).toList());
+    }
+
+    @Test
+    void saveAll_ShouldTakeIdsFromGeneratorAfterExistingUsers() {
+        // Given
+        Long lastUsedId = jdbcTemplate.queryForObject(
+                "SELECT next_val FROM id_generator WHERE sequence_name = 'users'", Long.class);
+
+        // When
+        List<User> saved = userRepository.saveAllAndFlush(List.of(
+                createUser("first@example.com"), createUser("second@example.com")));
+
+        // Then
+        assertEquals(List.of(lastUsedId + 1, lastUsedId + 2),
+                saved.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void softDeleteById_ShouldUpdateOnlyActiveUser() {
+        // When
+        int deletedActive = userRepository.softDeleteById(101L, null);
+        int deletedAgain = userRepository.softDeleteById(101L, null);
+        int deletedMissing = userRepository.softDeleteById(999L, null);
+
+        // Then
+        assertEquals(1, deletedActive);
+        assertEquals(0, deletedAgain);
+        assertEquals(0, deletedMissing);
+        assertTrue(userRepository.findById(101L).isEmpty());
+    }
+
+    @Test
+    void updateEmailById_ShouldChangeOnlyEmailOfActiveUser() {
+        // When
+        int updatedActive = userRepository.updateEmailById(101L, "new.email@example.com", null);
+        int updatedDeleted = userRepository.updateEmailById(103L, "other.email@example.com", null);
+
+        // Then
+        assertEquals(1, updatedActive);
+        assertEquals(0, updatedDeleted);
+        assertEquals(new UserResponseDto(101L, "new.email@example.com", "John", "Doe",
+                        LocalDate.of(1970, 3, 1), null, null, 1L),
+                userRepository.findDtoById(101L).orElseThrow());
+    }
+
+    @Test
+    void updateEmailById_WithTakenEmail_ShouldThrowDataIntegrityViolationException() {
+        // When & Then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.updateEmailById(101L, "user102@example.com", null));
+    }
+
+    @Test
+    void updateEmailById_WithExpectedVersion_ShouldUpdateOnlyMatchingVersion() {
+        // When
+        int updatedStale = userRepository.updateEmailById(101L, "stale@example.com", 1L);
+        int updatedCurrent = userRepository.updateEmailById(101L, "current@example.com", 0L);
+        int updatedAgain = userRepository.updateEmailById(101L, "again@example.com", 0L);
+
+        // Then
+        assertEquals(0, updatedStale);
+        assertEquals(1, updatedCurrent);
+        assertEquals(0, updatedAgain);
+        UserResponseDto user = userRepository.findDtoById(101L).orElseThrow();
+        assertEquals("current@example.com", user.email());
+        assertEquals(1L, user.version());
+    }
+
+    @Test
+    void softDeleteById_WithStaleVersion_ShouldNotDeleteUser() {
+        // When
+        int deleted = userRepository.softDeleteById(101L, 5L);
+
+        // Then
+        assertEquals(0, deleted);
+        assertTrue(userRepository.findDtoById(101L).isPresent());
+    }
+
+    @Test
+    void delete_ShouldSoftDeleteUserAndIncrementVersion() {
+        // Given
+        User user = userRepository.findById(101L).orElseThrow();
+
+        // When
+        userRepository.delete(user);
+        userRepository.flush();
+
+        // Then
+        assertEquals(Map.of("is_deleted", true, "version", 1L), jdbcTemplate.queryForMap(
+                "SELECT is_deleted, version FROM users WHERE id = 101"));
+    }
+
+    @Test
+    void findDtosByIdIn_ShouldReturnOnlyActiveUsers() {
+        // When
+        List<Long> ids = userRepository.findDtosByIdIn(List.of(101L, 103L, 104L, 999L)).stream()
+                .map(UserResponseDto::id)
+                .sorted()
+                .toList();
+
+        // Then
+        assertEquals(List.of(101L, 104L), ids);
+    }
+
+    @Test
+    void countActiveGroupedByBirthDate_ShouldCountOnlyActiveUsersPerBirthDate() {
+        // When
+        Map<LocalDate, Long> counts = userRepository.countActiveGroupedByBirthDate().stream()
+                .collect(Collectors.toMap(BirthDateCount::birthDate, BirthDateCount::count));
+
+        // Then
+        assertEquals(2L, counts.get(LocalDate.of(1970, 3, 1)));
+        assertEquals(1L, counts.get(LocalDate.of(1970, 6, 1)));
+        assertEquals(1L, counts.get(LocalDate.of(1971, 1, 1)));
+        assertEquals(1L, userRepository.countDeleted());
+    }
+
+    private User createUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setBirthDate(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private void insertUser(Long id, LocalDate birthDate, boolean deleted) {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date, "
+                        + "is_deleted) VALUES (?, ?, ?, ?, ?, ?)",
+                id, "user" + id + "@example.com", "John", "Doe", birthDate, deleted);
+    }
+}
@@ -0,0 +1,128 @@
+package com.lukian.userapi.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.verify;
+
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.model.User;
+import com.lukian.userapi.repository.UserRepository;
+import com.lukian.userapi.statistics.UserStatistics;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Every batch commits on its own, as it does in the application,
+ * so the test data is inserted and removed with JDBC around every test.
+ */
+@DataJpaTest
+@Import({SecondLevelCacheConfig.class, UserArchiveJob.class, UserArchiveBatchWriter.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "user.archive.enabled=true",
+        "user.archive.retention=1d",
+        "user.archive.batch-size=2",
+        "user.archive.pause=0s"
+})
+class UserArchiveJobTest {
+    @Autowired
+    private UserArchiveJob userArchiveJob;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserStatistics userStatistics;
+
+    @BeforeEach
+    void setUp() {
+        insertUser(201L, 2);
+        insertUser(202L, 2);
+        insertUser(203L, null);
+        insertUser(204L, 3);
+        insertUser(205L, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE '%@archive.test'");
+        jdbcTemplate.update("DELETE FROM users_archive");
+    }
+
+    @Test
+    void archive_ShouldMoveUsersDeletedBeforeRetentionInBatches() {
+        // When
+        long archived = userArchiveJob.archive();
+
+        // Then
+        assertEquals(3, archived);
+        assertEquals(List.of(203L, 205L), jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id > 200 ORDER BY id", Long.class));
+        assertEquals(List.of(201L, 202L, 204L), jdbcTemplate.queryForList(
+                "SELECT id FROM users_archive ORDER BY id", Long.class));
+        assertEquals("user204@archive.test", jdbcTemplate.queryForObject(
+                "SELECT email FROM users_archive WHERE id = 204", String.class));
+        verify(userStatistics).usersArchived(2);
+        verify(userStatistics).usersArchived(1);
+    }
+
+    @Test
+    void archive_ShouldFreeEmailOfArchivedUser() {
+        // Given
+        userArchiveJob.archive();
+        User user = new User();
+        user.setEmail("user201@archive.test");
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setBirthDate(LocalDate.of(1980, 1, 1));
+
+        // When
+        User savedUser = userRepository.save(user);
+
+        // Then
+        assertNotNull(savedUser.getId());
+    }
+
+    @Test
+    void softDeleteById_ShouldKeepUserUntilRetentionPasses() {
+        // Given
+        userRepository.softDeleteById(203L, null);
+
+        // When
+        userArchiveJob.archive();
+
+        // Then
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT deleted_at FROM users WHERE id = 203", Object.class));
+        assertEquals(List.of(203L, 205L), jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id > 200 ORDER BY id", Long.class));
+    }
+
+    private void insertUser(Long id, Integer deletedDaysAgo) {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date, "
+                        + "is_deleted, deleted_at) VALUES (?, ?, ?, ?, ?, ?, "
+                        + "TIMESTAMPADD(DAY, -?, CURRENT_TIMESTAMP))",
+                id, "user" + id + "@archive.test", "John", "Doe", LocalDate.of(1970, 1, 1),
+                deletedDaysAgo != null, deletedDaysAgo);
+    }
+}
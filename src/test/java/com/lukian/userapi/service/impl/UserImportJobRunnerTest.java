@@ -0,0 +1,139 @@
+package com.lukian.userapi.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.model.UserImportJob;
+import com.lukian.userapi.repository.UserImportJobRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportJobRunnerTest {
+    private static final Long JOB_ID = 1L;
+
+    @Mock
+    private UserImportJobRepository jobRepository;
+
+    @Mock
+    private UserImportChunkWriter chunkWriter;
+
+    @TempDir
+    private Path tempDir;
+
+    private UserImportJobRunner jobRunner;
+
+    private final List<List<UserImportRow>> writtenChunks = new ArrayList<>();
+
+    private final List<Long> writtenProgress = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        jobRunner = new UserImportJobRunner(jobRepository, chunkWriter, objectMapper);
+        ReflectionTestUtils.setField(jobRunner, "chunkSize", 2);
+        doAnswer(invocation -> {
+            writtenChunks.add(List.copyOf(invocation.getArgument(1)));
+            writtenProgress.add(invocation.getArgument(2));
+            return null;
+        }).when(chunkWriter).write(eq(JOB_ID), any(), anyLong());
+    }
+
+    @Test
+    void run_WithCsvFile_ShouldWriteChunksAndRejectUnparsableLines() throws IOException {
+        // Given
+        final UserImportJob job = createJob(UserImportJob.Format.CSV, 0, """
+                firstName,lastName,email,birthDate,address,phoneNumber
+                John,Doe,john.doe@example.com,1990-01-01,"1 Main St, Springfield",123
+                Jane,Doe,jane.doe@example.com,not-a-date,,
+                Jack,Doe,invalid-email,1991-01-01,,
+                """);
+
+        // When
+        jobRunner.run(JOB_ID);
+
+        // Then
+        assertEquals(List.of(3L, 4L), writtenProgress);
+        UserImportRow john = writtenChunks.get(0).get(0);
+        assertEquals(new UserRegisterRequestDto("john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "1 Main St, Springfield", "123"), john.user());
+        assertEquals(2L, john.lineNumber());
+        assertEquals(3L, writtenChunks.get(0).get(1).lineNumber());
+        assertEquals("email invalid email format", writtenChunks.get(1).get(0).error());
+        assertEquals(UserImportJob.Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void run_WithResumedNdjsonJob_ShouldSkipCommittedLines() throws IOException {
+        // Given
+        final UserImportJob job = createJob(UserImportJob.Format.NDJSON, 1, """
+                {"email":"john.doe@example.com","firstName":"John","lastName":"Doe",\
+                "birthDate":"1990-01-01"}
+                {"email":"jane.doe@example.com","firstName":"Jane","lastName":"Doe",\
+                "birthDate":"1992-01-01"}
+                {"email":
+                """);
+
+        // When
+        jobRunner.run(JOB_ID);
+
+        // Then
+        assertEquals(List.of(3L), writtenProgress);
+        assertEquals("jane.doe@example.com", writtenChunks.get(0).get(0).user().email());
+        assertEquals(3L, writtenChunks.get(0).get(1).lineNumber());
+        assertEquals(UserImportJob.Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void run_WithNullNdjsonLine_ShouldRejectLine() throws IOException {
+        // Given
+        final UserImportJob job = createJob(UserImportJob.Format.NDJSON, 0, """
+                null
+                {"email":"john.doe@example.com","firstName":"John","lastName":"Doe",\
+                "birthDate":"1990-01-01"}
+                """);
+
+        // When
+        jobRunner.run(JOB_ID);
+
+        // Then
+        assertEquals(List.of(2L), writtenProgress);
+        assertEquals("Cannot parse line: expected a user object",
+                writtenChunks.get(0).get(0).error());
+        assertEquals("john.doe@example.com", writtenChunks.get(0).get(1).user().email());
+        assertEquals(UserImportJob.Status.COMPLETED, job.getStatus());
+    }
+
+    private UserImportJob createJob(UserImportJob.Format format, long processedLines,
+                                    String content) throws IOException {
+        Path source = Files.writeString(tempDir.resolve("users"), content);
+        UserImportJob job = new UserImportJob();
+        job.setId(JOB_ID);
+        job.setSource(source.toString());
+        job.setFormat(format);
+        job.setStatus(UserImportJob.Status.FAILED);
+        job.setProcessedLines(processedLines);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        when(jobRepository.save(job)).thenReturn(job);
+        return job;
+    }
+}
@@ -0,0 +1,213 @@
+package com.lukian.userapi.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.lukian.userapi.config.RegistrationQueueProperties;
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
+import com.lukian.userapi.dto.UserRegisterRequestDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto;
+import com.lukian.userapi.dto.UserRegistrationStatusDto.Status;
+import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.exception.EmailAlreadyExistsException;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.RegistrationQueueFullException;
+import com.lukian.userapi.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The writer thread is not started; batches are written by calling {@code flush()}.
+ */
+class UserRegistrationQueueServiceImplTest {
+    private final UserService userService = mock(UserService.class);
+
+    private MeterRegistry meterRegistry;
+
+    private UserRegistrationQueueServiceImpl queueService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queueService = createQueueService(10);
+    }
+
+    @Test
+    void queuedRegistrations_ShouldBeWrittenInOneBatch() throws Exception {
+        // Given
+        UserRegisterRequestDto john = createRequestDto("john@example.com");
+        UserRegisterRequestDto jane = createRequestDto("jane@example.com");
+        UserResponseDto savedJohn = createResponseDto(1L, john);
+        when(userService.saveAll(List.of(john, jane))).thenReturn(
+                new BatchRegistrationResponseDto(1, 1, List.of(
+                        new BatchRegistrationItemDto(savedJohn, List.of()),
+                        new BatchRegistrationItemDto(null,
+                                List.of("email jane@example.com is already taken")))));
+        final UserRegistrationStatusDto queuedJohn = queueService.enqueue(john);
+        final UserRegistrationStatusDto queuedJane = queueService.enqueue(jane);
+
+        // When
+        int written = queueService.flush();
+
+        // Then
+        assertEquals(Status.QUEUED, queuedJohn.status());
+        assertEquals(2, written);
+        UserRegistrationStatusDto johnStatus = queueService.getStatus(queuedJohn.trackingId());
+        assertEquals(Status.REGISTERED, johnStatus.status());
+        assertEquals(savedJohn, johnStatus.user());
+        UserRegistrationStatusDto janeStatus = queueService.getStatus(queuedJane.trackingId());
+        assertEquals(Status.REJECTED, janeStatus.status());
+        assertEquals(List.of("email jane@example.com is already taken"), janeStatus.errors());
+        assertEquals(1, getRequests("registered"));
+        assertEquals(1, getRequests("rejected"));
+        verify(userService, never()).save(john);
+    }
+
+    @Test
+    void enqueue_WithQueuedEmail_ShouldThrowEmailAlreadyExistsExceptionUntilWritten()
+            throws Exception {
+        // Given
+        UserRegisterRequestDto john = createRequestDto("john@example.com");
+        when(userService.saveAll(List.of(john))).thenReturn(new BatchRegistrationResponseDto(
+                1, 0, List.of(new BatchRegistrationItemDto(createResponseDto(1L, john),
+                        List.of()))));
+        queueService.enqueue(john);
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> queueService.enqueue(createRequestDto("John@Example.com")));
+        queueService.flush();
+        assertEquals(Status.QUEUED,
+                queueService.enqueue(createRequestDto("John@Example.com")).status());
+    }
+
+    @Test
+    void enqueue_WithEmailInDb_ShouldThrowEmailAlreadyExistsExceptionWithoutQueueing()
+            throws Exception {
+        // Given
+        doThrow(new EmailAlreadyExistsException("email john@example.com is already taken"))
+                .when(userService).validateEmailAvailable("john@example.com");
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> queueService.enqueue(createRequestDto("john@example.com")));
+        assertEquals(0, getRequests("queued"));
+        assertEquals(0, queueService.flush());
+    }
+
+    @Test
+    void enqueue_WithFullQueue_ShouldThrowRegistrationQueueFullException() throws Exception {
+        // Given
+        queueService = createQueueService(1);
+        UserRegisterRequestDto john = createRequestDto("john@example.com");
+        when(userService.saveAll(List.of(john))).thenReturn(new BatchRegistrationResponseDto(
+                1, 0, List.of(new BatchRegistrationItemDto(createResponseDto(1L, john),
+                        List.of()))));
+        queueService.enqueue(john);
+
+        // When
+        RegistrationQueueFullException exception = assertThrows(
+                RegistrationQueueFullException.class,
+                () -> queueService.enqueue(createRequestDto("jane@example.com")));
+
+        // Then
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals(1, getRequests("full"));
+        queueService.flush();
+        assertEquals(Status.QUEUED,
+                queueService.enqueue(createRequestDto("jane@example.com")).status());
+    }
+
+    @Test
+    void failedBatch_ShouldRegisterUsersOneByOne() throws Exception {
+        // Given
+        UserRegisterRequestDto john = createRequestDto("john@example.com");
+        UserRegisterRequestDto jane = createRequestDto("jane@example.com");
+        UserResponseDto savedJohn = createResponseDto(1L, john);
+        when(userService.saveAll(List.of(john, jane)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(userService.save(john)).thenReturn(savedJohn);
+        when(userService.save(jane)).thenThrow(
+                new EmailAlreadyExistsException("email jane@example.com is already taken"));
+        final UserRegistrationStatusDto queuedJohn = queueService.enqueue(john);
+        final UserRegistrationStatusDto queuedJane = queueService.enqueue(jane);
+
+        // When
+        queueService.flush();
+
+        // Then
+        assertEquals(savedJohn, queueService.getStatus(queuedJohn.trackingId()).user());
+        UserRegistrationStatusDto janeStatus = queueService.getStatus(queuedJane.trackingId());
+        assertEquals(Status.REJECTED, janeStatus.status());
+        assertEquals(List.of("email jane@example.com is already taken"), janeStatus.errors());
+    }
+
+    @Test
+    void batchFailedByDb_ShouldRejectWholeBatchWithoutRegisteringOneByOne() throws Exception {
+        // Given
+        UserRegisterRequestDto john = createRequestDto("john@example.com");
+        UserRegisterRequestDto jane = createRequestDto("jane@example.com");
+        when(userService.saveAll(List.of(john, jane)))
+                .thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+        final UserRegistrationStatusDto queuedJohn = queueService.enqueue(john);
+        final UserRegistrationStatusDto queuedJane = queueService.enqueue(jane);
+
+        // When
+        queueService.flush();
+
+        // Then
+        verify(userService, never()).save(any());
+        for (UserRegistrationStatusDto queued : List.of(queuedJohn, queuedJane)) {
+            UserRegistrationStatusDto status = queueService.getStatus(queued.trackingId());
+            assertEquals(Status.REJECTED, status.status());
+            assertEquals(List.of("Registration failed, retry later"), status.errors());
+        }
+        assertEquals(2, getRequests("rejected"));
+    }
+
+    @Test
+    void getStatus_WithUnknownTrackingId_ShouldThrowEntityNotFoundException() {
+        assertThrows(EntityNotFoundException.class, () -> queueService.getStatus("unknown"));
+    }
+
+    private UserRegistrationQueueServiceImpl createQueueService(int capacity) {
+        UserRegistrationQueueServiceImpl service = new UserRegistrationQueueServiceImpl(
+                userService, new RegistrationQueueProperties(capacity, 10, Duration.ZERO,
+                        Duration.ZERO, Duration.ofSeconds(2), 100, Duration.ofMinutes(1)),
+                meterRegistry);
+        ReflectionTestUtils.setField(service, "running", true);
+        return service;
+    }
+
+    private UserRegisterRequestDto createRequestDto(String email) {
+        return new UserRegisterRequestDto(email, "John", "Doe", LocalDate.of(1990, 1, 1),
+                "Address", "123456789");
+    }
+
+    private UserResponseDto createResponseDto(Long id, UserRegisterRequestDto requestDto) {
+        return new UserResponseDto(id, requestDto.email(), requestDto.firstName(),
+                requestDto.lastName(), requestDto.birthDate(), requestDto.address(),
+                requestDto.phoneNumber(), 0L);
+    }
+
+    private double getRequests(String outcome) {
+        return meterRegistry.get(UserRegistrationQueueServiceImpl.REQUESTS_METRIC)
+                .tag("outcome", outcome)
+                .counter().count();
+    }
+}
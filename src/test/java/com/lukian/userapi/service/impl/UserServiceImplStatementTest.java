@@ -0,0 +1,109 @@
+package com.lukian.userapi.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.lukian.userapi.cache.UserCache;
+import com.lukian.userapi.config.SecondLevelCacheConfig;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.mapper.impl.UserMapperImpl;
+import com.lukian.userapi.statistics.UserSearchMetrics;
+import com.lukian.userapi.statistics.UserStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import java.time.LocalDate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Counts the statements the service sends to DB, so a write path that is meant
+ * to be a single statement does not quietly gain a read before it.
+ * Every service call commits on its own, as it does in the application.
+ */
+@DataJpaTest
+@Import({SecondLevelCacheConfig.class, UserServiceImpl.class, UserMapperImpl.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statements;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class UserServiceImplStatementTest {
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private Validator validator;
+
+    @MockBean
+    private UserCache userCache;
+
+    @MockBean
+    private UserStatistics userStatistics;
+
+    @MockBean
+    private UserSearchMetrics userSearchMetrics;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date, "
+                        + "is_deleted) VALUES (?, ?, ?, ?, ?, ?)",
+                301L, "user301@example.com", "John", "Doe", LocalDate.of(1970, 3, 1), false);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE id > 300");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void deleteById_ShouldRunOneUpdate() {
+        // When
+        userService.deleteById(301L, null);
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(true, jdbcTemplate.queryForObject(
+                "SELECT is_deleted FROM users WHERE id = 301", Boolean.class));
+        verify(userCache).evict(301L);
+        verify(userStatistics).userDeleted();
+    }
+
+    @Test
+    void deleteById_WithMissingUser_ShouldRunOneUpdate() {
+        // When
+        assertThrows(EntityNotFoundException.class, () -> userService.deleteById(302L, null));
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        verifyNoInteractions(userStatistics);
+    }
+}
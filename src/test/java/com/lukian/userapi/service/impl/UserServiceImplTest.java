@@ -2,22 +2,56 @@ package com.lukian.userapi.service.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.lukian.userapi.cache.UserCache;
+import com.lukian.userapi.dto.BatchRegistrationItemDto;
+import com.lukian.userapi.dto.BatchRegistrationResponseDto;
+import com.lukian.userapi.dto.BirthDateCursor;
 import com.lukian.userapi.dto.UpdateUserRequestDto;
+import com.lukian.userapi.dto.UserLookupResponseDto;
+import com.lukian.userapi.dto.UserPageResponseDto;
 import com.lukian.userapi.dto.UserRegisterRequestDto;
 import com.lukian.userapi.dto.UserResponseDto;
+import com.lukian.userapi.exception.EmailAlreadyExistsException;
+import com.lukian.userapi.exception.EntityNotFoundException;
+import com.lukian.userapi.exception.PreconditionFailedException;
 import com.lukian.userapi.mapper.UserMapper;
 import com.lukian.userapi.model.User;
 import com.lukian.userapi.repository.UserRepository;
+import com.lukian.userapi.statistics.UserSearchMetrics;
+import com.lukian.userapi.statistics.UserStatistics;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,6 +59,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceImplTest {
@@ -35,6 +73,21 @@ public class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UserStatistics userStatistics;
+
+    @Mock
+    private UserSearchMetrics userSearchMetrics;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -43,7 +96,7 @@ public class UserServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        reset(userRepository, userMapper);
+        reset(userRepository, userMapper, entityManager, validator, userCache, userStatistics);
     }
 
     @Test
@@ -65,34 +118,276 @@ public class UserServiceImplTest {
         // Then
         assertEquals(expectedResponse, actualResponse);
         verifySaveUserInteraction(requestDto, user, expectedResponse);
+        verify(userCache, times(1)).put(expectedResponse);
+        verify(userStatistics, times(1)).userAdded(requestDto.birthDate());
     }
 
     @Test
-    void updateUserEmailById_WithValidIdAndDto_ShouldReturnUpdatedUserDto() {
+    void save_WithTakenEmail_ShouldThrowEmailAlreadyExistsException() {
+        // Given
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto(
+                "taken@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        User user = createUserFromDto(requestDto);
+        when(userMapper.toModel(requestDto)).thenReturn(user);
+        when(userRepository.save(user))
+                .thenThrow(createViolation("23000", 1062, "users.email"));
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.save(requestDto));
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void validateEmailAvailable_WithTakenEmail_ShouldThrowEmailAlreadyExistsException() {
+        // Given
+        when(userRepository.findExistingEmails(List.of("taken@example.com")))
+                .thenReturn(List.of("taken@example.com"));
+        when(userRepository.findExistingEmails(List.of("free@example.com")))
+                .thenReturn(List.of());
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.validateEmailAvailable("taken@example.com"));
+        userService.validateEmailAvailable("free@example.com");
+    }
+
+    @Test
+    void save_WithOtherIntegrityViolation_ShouldPropagateIt() {
+        // Given
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto(
+                "john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        User user = createUserFromDto(requestDto);
+        when(userMapper.toModel(requestDto)).thenReturn(user);
+        DataIntegrityViolationException duplicateId =
+                createViolation("23000", 1062, "users.PRIMARY");
+        when(userRepository.save(user)).thenThrow(duplicateId);
+
+        // When
+        DataIntegrityViolationException exception = assertThrows(
+                DataIntegrityViolationException.class, () -> userService.save(requestDto));
+
+        // Then
+        assertEquals(duplicateId, exception);
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void getById_WithExistingUser_ShouldReadThroughCache() {
         // Given
         Long testId = 1L;
+        User user = createUser("john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        UserResponseDto expectedResponse = createUserResponseDto(user);
+        mockCacheMiss(testId);
+        when(userRepository.findById(testId)).thenReturn(Optional.of(user));
+        when(userMapper.toDto(user)).thenReturn(expectedResponse);
 
-        User existingUser = createUser("old.email@example.com", "John", "Doe",
+        // When
+        UserResponseDto result = userService.getById(testId);
+
+        // Then
+        assertEquals(expectedResponse, result);
+        verify(userRepository, times(1)).findById(testId);
+    }
+
+    @Test
+    void getById_WithMissingUser_ShouldThrowEntityNotFoundException() {
+        // Given
+        Long testId = 1L;
+        mockCacheMiss(testId);
+        when(userRepository.findById(testId)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> userService.getById(testId));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAllByIds_WithCachedAndMissingUsers_ShouldKeepRequestOrderAndReportMissingIds() {
+        // Given
+        User cachedUser = createUser("john.doe@example.com", "John", "Doe",
                 LocalDate.of(1990, 1, 1), "Address", "123456789");
+        cachedUser.setId(1L);
+        User storedUser = createUser("jane.doe@example.com", "Jane", "Doe",
+                LocalDate.of(1992, 2, 2), "Address", "987654321");
+        storedUser.setId(2L);
+        UserResponseDto cachedDto = createUserResponseDto(cachedUser);
+        UserResponseDto storedDto = createUserResponseDto(storedUser);
+        when(userCache.getAll(any(), any())).thenAnswer(invocation -> {
+            Map<Long, UserResponseDto> users = new HashMap<>((Map<Long, UserResponseDto>)
+                    invocation.getArgument(1, Function.class).apply(Set.of(2L, 3L)));
+            users.put(1L, cachedDto);
+            return users;
+        });
+        when(userRepository.findDtosByIdIn(anyList())).thenReturn(List.of(storedDto));
+
+        // When
+        UserLookupResponseDto result = userService.getAllByIds(List.of(3L, 2L, 1L, 2L));
+
+        // Then
+        assertEquals(List.of(storedDto, cachedDto), result.users());
+        assertEquals(List.of(3L), result.missing());
+        verify(userRepository, times(1)).findDtosByIdIn(anyList());
+    }
+
+    @Test
+    void getAllByIds_WithManyMissingIds_ShouldQueryInChunks() {
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+        mockBulkCacheMiss();
+        when(userRepository.findDtosByIdIn(anyList())).thenReturn(List.of());
+
+        // When
+        UserLookupResponseDto result = userService.getAllByIds(ids);
+
+        // Then
+        assertEquals(ids, result.missing());
+        verify(userRepository, times(3)).findDtosByIdIn(anyList());
+    }
+
+    @Test
+    void saveAll_WithValidAndInvalidUsers_ShouldSaveValidOnesAndReportErrorsPerItem() {
+        // Given
+        ReflectionTestUtils.setField(userService, "minUserAge", 18);
+        ReflectionTestUtils.setField(userService, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(userService, "batchSize", 1);
+
+        UserRegisterRequestDto valid = createUserRegisterRequestDto(
+                "john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        UserRegisterRequestDto underage = createUserRegisterRequestDto(
+                "young@example.com", "Young", "Doe",
+                LocalDate.now().minusYears(17), "Address", "123456789");
+        UserRegisterRequestDto duplicate = createUserRegisterRequestDto(
+                "John.Doe@example.com", "Jack", "Doe",
+                LocalDate.of(1991, 1, 1), "Address", "123456789");
+        UserRegisterRequestDto taken = createUserRegisterRequestDto(
+                "taken@example.com", "Jane", "Doe",
+                LocalDate.of(1992, 1, 1), "Address", "123456789");
+
+        when(userRepository.findExistingEmails(anyList())).thenReturn(List.of("taken@example.com"));
+        User user = createUserFromDto(valid);
+        UserResponseDto expectedUser = createUserResponseDto(user);
+        when(userMapper.toModel(valid)).thenReturn(user);
+        when(userRepository.saveAll(List.of(user))).thenReturn(List.of(user));
+        when(userMapper.toDto(user)).thenReturn(expectedUser);
+        Session session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        // When
+        BatchRegistrationResponseDto result = userService.saveAll(
+                List.of(valid, underage, duplicate, taken));
+
+        // Then
+        assertEquals(1, result.created());
+        assertEquals(3, result.rejected());
+        assertEquals(List.of(
+                new BatchRegistrationItemDto(expectedUser, List.of()),
+                new BatchRegistrationItemDto(null,
+                        List.of("User must be at least 18y.o. to be able to register")),
+                new BatchRegistrationItemDto(null,
+                        List.of("email John.Doe@example.com is already taken")),
+                new BatchRegistrationItemDto(null,
+                        List.of("email taken@example.com is already taken"))
+        ), result.items());
+        verify(userRepository, times(1)).saveAll(List.of(user));
+        verify(userRepository, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+        verify(session, times(1)).setCacheMode(CacheMode.IGNORE);
+        verify(userStatistics, times(1)).userAdded(user.getBirthDate());
+    }
+
+    @Test
+    void saveAll_WithEmailTakenOnFlush_ShouldThrowEmailAlreadyExistsException() {
+        // Given
+        ReflectionTestUtils.setField(userService, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(userService, "batchSize", 10);
+
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto(
+                "john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        User user = createUserFromDto(requestDto);
+        when(userRepository.findExistingEmails(anyList())).thenReturn(List.of());
+        when(userMapper.toModel(requestDto)).thenReturn(user);
+        when(userRepository.saveAll(List.of(user))).thenReturn(List.of(user));
+        doThrow(createViolation("23000", 1062, "users.email")).when(userRepository).flush();
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.saveAll(List.of(requestDto)));
+        verifyNoInteractions(userStatistics);
+    }
+
+    @Test
+    void updateUserEmailById_WithValidIdAndDto_ShouldReturnUpdatedUserDto() {
+        // Given
+        Long testId = 1L;
 
         UpdateUserRequestDto requestDto = new UpdateUserRequestDto("new.email@example.com");
 
-        User updatedUser = createUser(requestDto.email(), existingUser.getFirstName(),
-                existingUser.getLastName(), existingUser.getBirthDate(),
-                existingUser.getAddress(), existingUser.getPhoneNumber());
+        User updatedUser = createUser(requestDto.email(), "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
 
-        when(userRepository.findById(testId)).thenReturn(Optional.of(existingUser));
-        when(userMapper.toDto(updatedUser)).thenReturn(createUserResponseDto(updatedUser));
-        when(userRepository.save(existingUser)).thenReturn(updatedUser);
+        when(userRepository.updateEmailById(testId, requestDto.email(), null)).thenReturn(1);
+        when(userRepository.findDtoById(testId))
+                .thenReturn(Optional.of(createUserResponseDto(updatedUser)));
 
         // When
-        UserResponseDto resultDto = userService.updateUserEmailById(testId, requestDto);
+        UserResponseDto resultDto = userService.updateUserEmailById(testId, requestDto, null);
 
         // Then
         assertNotNull(resultDto); // Ensure result is not null
         assertEquals(requestDto.email(), resultDto.email()); // Check if email is updated
-        verify(userRepository, times(1)).findById(testId);
-        verify(userRepository, times(1)).save(existingUser);
+        verify(userRepository, times(1)).updateEmailById(testId, requestDto.email(), null);
+        verify(userRepository, times(1)).findDtoById(testId);
+        verify(userCache, times(1)).put(resultDto);
+        verifyNoMoreInteractions(userRepository, userMapper);
+    }
+
+    @Test
+    void updateUserEmailById_WithMissingUser_ShouldThrowEntityNotFoundException() {
+        // Given
+        Long testId = 1L;
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto("new.email@example.com");
+        when(userRepository.updateEmailById(testId, requestDto.email(), null)).thenReturn(0);
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class,
+                () -> userService.updateUserEmailById(testId, requestDto, null));
+        verifyNoMoreInteractions(userRepository, userCache);
+    }
+
+    @Test
+    void updateUserEmailById_WithTakenEmail_ShouldThrowEmailAlreadyExistsException() {
+        // Given
+        Long testId = 1L;
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto("taken@example.com");
+        when(userRepository.updateEmailById(testId, requestDto.email(), null))
+                .thenThrow(createViolation("23505", 23505, "\"public.CONSTRAINT_6_INDEX_8 ON "
+                        + "public.users(email NULLS FIRST) VALUES ( /* 2 */ "
+                        + "'taken@example.com' )\""));
+
+        // When & Then
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.updateUserEmailById(testId, requestDto, null));
+        verifyNoMoreInteractions(userRepository, userCache);
+    }
+
+    @Test
+    void updateUserEmailById_WithNotNullViolation_ShouldPropagateIt() {
+        // Given
+        Long testId = 1L;
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto("john.doe@example.com");
+        when(userRepository.updateEmailById(testId, requestDto.email(), null))
+                .thenThrow(createViolation("23000", 1048, null));
+
+        // When & Then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userService.updateUserEmailById(testId, requestDto, null));
+        verifyNoMoreInteractions(userRepository, userCache);
     }
 
     @Test
@@ -113,10 +408,10 @@ public class UserServiceImplTest {
 
         when(userRepository.findById(testId)).thenReturn(Optional.of(existingUser));
         when(userMapper.toDto(updatedUser)).thenReturn(createUserResponseDto(updatedUser));
-        when(userRepository.save(existingUser)).thenReturn(updatedUser);
+        when(userRepository.saveAndFlush(existingUser)).thenReturn(updatedUser);
 
         // When
-        UserResponseDto resultDto = userService.updateUserDataById(testId, requestDto);
+        UserResponseDto resultDto = userService.updateUserDataById(testId, requestDto, null);
 
         // Then
         assertEquals(updatedUser.getEmail(), resultDto.email());
@@ -126,55 +421,216 @@ public class UserServiceImplTest {
         assertEquals(updatedUser.getAddress(), resultDto.address());
         assertEquals(updatedUser.getPhoneNumber(), resultDto.phoneNumber());
         verify(userRepository, times(1)).findById(testId);
-        verify(userRepository, times(1)).save(existingUser);
+        verify(userRepository, times(1)).saveAndFlush(existingUser);
+        verify(userCache, times(1)).put(resultDto);
+        verify(userStatistics, times(1)).birthDateChanged(
+                LocalDate.of(1990, 1, 1), resultDto.birthDate());
     }
 
     @Test
     void deleteById_WithValidId_ShouldDeleteUser() {
         // Given
         Long testId = 1L;
-        User userToDelete = new User();
-        userToDelete.setId(testId);
-        userToDelete.setEmail("old.email@example.com");
-        userToDelete.setFirstName("OldFirstName");
-        userToDelete.setLastName("OldLastName");
-        userToDelete.setBirthDate(LocalDate.of(1990, 1, 1));
-        userToDelete.setAddress("OldAddress");
-        userToDelete.setPhoneNumber("123456789");
-
-        when(userRepository.findById(testId)).thenReturn(Optional.of(userToDelete));
+        when(userRepository.softDeleteById(testId, null)).thenReturn(1);
 
         // When
-        userService.deleteById(testId);
+        userService.deleteById(testId, null);
 
         // Then
-        verify(userRepository, times(1)).findById(testId);
-        verify(userRepository, times(1)).deleteById(testId);
+        verify(userRepository, times(1)).softDeleteById(testId, null);
+        verify(userCache, times(1)).evict(testId);
+        verify(userStatistics, times(1)).userDeleted();
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
     @Test
-    void searchByBirthDateRange_WithValidRange_ShouldReturnListOfUsers() {
+    void updateUserDataById_WithMissingUser_ShouldThrowEntityNotFoundExceptionWithoutStackTrace() {
         // Given
-        List<User> userList = Arrays.asList(
-                createUser("john.doe@example.com", "John", "Doe",
-                        LocalDate.of(1992, 5, 15), "Address 1", "123456789"),
-                createUser("jane.doe@example.com", "Jane", "Doe",
-                        LocalDate.of(1994, 10, 20), "Address 2", "987654321")
-        );
+        Long testId = 1L;
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto("john@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.findById(testId)).thenReturn(Optional.empty());
 
-        LocalDate fromDate = LocalDate.of(1990, 1, 1);
-        LocalDate toDate = LocalDate.of(1995, 12, 31);
+        // When
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
+                () -> userService.updateUserDataById(testId, requestDto, null));
+
+        // Then
+        assertEquals("Cannot find user by id: " + testId, exception.getMessage());
+        assertEquals(0, exception.getStackTrace().length);
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void deleteById_WithMissingOrDeletedUser_ShouldThrowEntityNotFoundException() {
+        // Given
+        Long testId = 1L;
+        when(userRepository.softDeleteById(testId, null)).thenReturn(0);
 
-        when(userRepository.findAllByBirthDateBetween(fromDate, toDate)).thenReturn(userList);
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> userService.deleteById(testId, null));
+        verify(userRepository, never()).findDtoById(testId);
+        verifyNoInteractions(userCache, userStatistics);
+    }
 
+    @Test
+    void updateUserEmailById_WithStaleVersion_ShouldThrowPreconditionFailedException() {
+        // Given
+        Long testId = 1L;
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto("new.email@example.com");
+        User user = createUser("old.email@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.updateEmailById(testId, requestDto.email(), 3L)).thenReturn(0);
+        when(userRepository.findDtoById(testId))
+                .thenReturn(Optional.of(createUserResponseDto(user)));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.updateUserEmailById(testId, requestDto, 3L));
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void updateUserDataById_WithStaleVersion_ShouldThrowPreconditionFailedException() {
+        // Given
+        Long testId = 1L;
+        User existingUser = createUser("old.email@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        existingUser.setVersion(4L);
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto("new.email@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.findById(testId)).thenReturn(Optional.of(existingUser));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.updateUserDataById(testId, requestDto, 3L));
+        verify(userRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void updateUserDataById_WithVersionChangedBeforeFlush_ShouldThrowPreconditionFailedException() {
+        // Given
+        Long testId = 1L;
+        User existingUser = createUser("old.email@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        existingUser.setVersion(3L);
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto("new.email@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.findById(testId)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(existingUser))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, testId));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.updateUserDataById(testId, requestDto, 3L));
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void updateUserDataById_WithUnconditionalConcurrentUpdate_ShouldPropagateLockingFailure() {
+        // Given
+        Long testId = 1L;
+        User existingUser = createUser("old.email@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        UserRegisterRequestDto requestDto = createUserRegisterRequestDto("new.email@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.findById(testId)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(existingUser))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, testId));
+
+        // When & Then
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userService.updateUserDataById(testId, requestDto, null));
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void deleteById_WithStaleVersion_ShouldThrowPreconditionFailedException() {
+        // Given
+        Long testId = 1L;
+        User user = createUser("john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 1, 1), "Address", "123456789");
+        when(userRepository.softDeleteById(testId, 3L)).thenReturn(0);
+        when(userRepository.findDtoById(testId))
+                .thenReturn(Optional.of(createUserResponseDto(user)));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.deleteById(testId, 3L));
+        verifyNoInteractions(userCache, userStatistics);
+    }
+
+    @Test
+    void searchUpcomingBirthdays_WithinOneYear_ShouldQueryOneMonthDayRange() {
+        // Given
+        User user = createUser("john.doe@example.com", "John", "Doe",
+                LocalDate.of(1990, 5, 20), "Address", "123456789");
+        UserResponseDto expectedResponse = createUserResponseDto(user);
+        when(userRepository.findDtosByBirthMonthDayRanges(515, 522, 1231, 101))
+                .thenReturn(List.of(expectedResponse));
+
+        // When
+        List<UserResponseDto> result = userService.searchUpcomingBirthdays(
+                LocalDate.of(2024, 5, 15), 7);
+
+        // Then
+        assertEquals(List.of(expectedResponse), result);
+        verify(userSearchMetrics).upcomingBirthdaysSearched(1);
+        verifyNoInteractions(userMapper);
+    }
+
+    @Test
+    void searchUpcomingBirthdays_AcrossNewYear_ShouldQueryTwoMonthDayRanges() {
+        // When
+        userService.searchUpcomingBirthdays(LocalDate.of(2024, 12, 28), 10);
+
+        // Then
+        verify(userRepository, times(1)).findDtosByBirthMonthDayRanges(1228, 1231, 101, 107);
+    }
+
+    @Test
+    void searchUpcomingBirthdays_EndingOnFebruary28OfNonLeapYear_ShouldIncludeFebruary29() {
+        // When
+        userService.searchUpcomingBirthdays(LocalDate.of(2023, 2, 21), 7);
+
+        // Then
+        verify(userRepository, times(1)).findDtosByBirthMonthDayRanges(221, 229, 1231, 101);
+    }
+
+    @Test
+    void searchUpcomingBirthdays_EndingOnFebruary28OfLeapYear_ShouldNotIncludeFebruary29() {
+        // When
+        userService.searchUpcomingBirthdays(LocalDate.of(2024, 2, 21), 7);
+
+        // Then
+        verify(userRepository, times(1)).findDtosByBirthMonthDayRanges(221, 228, 1231, 101);
+    }
+
+    @Test
+    void searchUpcomingBirthdays_WithWholeYear_ShouldQueryAllMonthDaysStartingFromDate() {
+        // When
+        userService.searchUpcomingBirthdays(LocalDate.of(2023, 3, 10), 365);
+
+        // Then
+        verify(userRepository, times(1)).findDtosByBirthMonthDayRanges(310, 1231, 101, 309);
+    }
+
+    @Test
+    void searchByBirthDateRange_WithValidRange_ShouldReturnProjectedUsers() {
+        // Given
         List<UserResponseDto> expectedResponse = Arrays.asList(
-                createUserResponseDto(userList.get(0)),
-                createUserResponseDto(userList.get(1))
+                createUserResponseDto(createUser("john.doe@example.com", "John", "Doe",
+                        LocalDate.of(1992, 5, 15), "Address 1", "123456789")),
+                createUserResponseDto(createUser("jane.doe@example.com", "Jane", "Doe",
+                        LocalDate.of(1994, 10, 20), "Address 2", "987654321"))
         );
 
-        when(userMapper.toDto(userList.get(0))).thenReturn(expectedResponse.get(0));
-        when(userMapper.toDto(userList.get(1))).thenReturn(expectedResponse.get(1));
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(1995, 12, 31);
+
+        when(userRepository.findDtosByBirthDateBetween(fromDate, toDate))
+                .thenReturn(expectedResponse);
 
         // When
         List<UserResponseDto> result = userService.searchByBirthDateRange(fromDate, toDate);
@@ -183,9 +639,101 @@ public class UserServiceImplTest {
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals(expectedResponse, result);
-        verify(userRepository, times(1)).findAllByBirthDateBetween(fromDate, toDate);
-        verify(userMapper, times(1)).toDto(userList.get(0));
-        verify(userMapper, times(1)).toDto(userList.get(1));
+        verify(userRepository, times(1)).findDtosByBirthDateBetween(fromDate, toDate);
+        verify(userSearchMetrics).birthDateRangeSearched(2);
+        verifyNoInteractions(userMapper);
+    }
+
+    @Test
+    void searchByBirthDateRange_WithLimitAndMoreUsers_ShouldReturnPageWithNextCursor() {
+        // Given
+        User first = createUser("john.doe@example.com", "John", "Doe",
+                LocalDate.of(1992, 5, 15), "Address 1", "123456789");
+        first.setId(1L);
+        User second = createUser("jane.doe@example.com", "Jane", "Doe",
+                LocalDate.of(1994, 10, 20), "Address 2", "987654321");
+        second.setId(2L);
+
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(1995, 12, 31);
+
+        UserResponseDto expectedUser = createUserResponseDto(first);
+        when(userRepository.findDtoPageByBirthDateBetween(fromDate, toDate, Limit.of(2)))
+                .thenReturn(List.of(expectedUser, createUserResponseDto(second)));
+
+        // When
+        UserPageResponseDto result = userService.searchByBirthDateRange(
+                fromDate, toDate, null, 1);
+
+        // Then
+        assertEquals(List.of(expectedUser), result.users());
+        assertEquals(new BirthDateCursor(first.getBirthDate(), first.getId()),
+                BirthDateCursor.decode(result.next()));
+        verify(userSearchMetrics).birthDatePageSearched(1);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void searchByBirthDateRange_WithCursorOnLastPage_ShouldReturnPageWithoutNextCursor() {
+        // Given
+        User second = createUser("jane.doe@example.com", "Jane", "Doe",
+                LocalDate.of(1994, 10, 20), "Address 2", "987654321");
+        second.setId(2L);
+
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(1995, 12, 31);
+        BirthDateCursor cursor = new BirthDateCursor(LocalDate.of(1992, 5, 15), 1L);
+
+        UserResponseDto expectedUser = createUserResponseDto(second);
+        when(userRepository.findDtoPageAfter(fromDate, toDate,
+                cursor.birthDate(), cursor.id(), Limit.of(2))).thenReturn(List.of(expectedUser));
+
+        // When
+        UserPageResponseDto result = userService.searchByBirthDateRange(
+                fromDate, toDate, cursor.encode(), 1);
+
+        // Then
+        assertEquals(List.of(expectedUser), result.users());
+        assertNull(result.next());
+    }
+
+    @Test
+    void streamByBirthDateRange_WithValidRange_ShouldPassEveryUserToConsumer() {
+        // Given
+        List<UserResponseDto> expectedResponse = Arrays.asList(
+                createUserResponseDto(createUser("john.doe@example.com", "John", "Doe",
+                        LocalDate.of(1992, 5, 15), "Address 1", "123456789")),
+                createUserResponseDto(createUser("jane.doe@example.com", "Jane", "Doe",
+                        LocalDate.of(1994, 10, 20), "Address 2", "987654321"))
+        );
+
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(1995, 12, 31);
+
+        when(userRepository.streamDtosByBirthDateBetween(fromDate, toDate))
+                .thenReturn(expectedResponse.stream());
+
+        // When
+        List<UserResponseDto> result = new ArrayList<>();
+        userService.streamByBirthDateRange(fromDate, toDate, result::add);
+
+        // Then
+        assertEquals(expectedResponse, result);
+        verify(userRepository, times(1)).streamDtosByBirthDateBetween(fromDate, toDate);
+        verify(userSearchMetrics).birthDateRangeStreamed(2);
+        verifyNoInteractions(userMapper, entityManager);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockBulkCacheMiss() {
+        when(userCache.getAll(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(1, Function.class)
+                        .apply(new LinkedHashSet<>(invocation.getArgument(0, Collection.class))));
+    }
+
+    private void mockCacheMiss(Long id) {
+        when(userCache.get(eq(id), any())).thenAnswer(invocation ->
+                invocation.getArgument(1, Function.class).apply(id));
     }
 
     private User createUser(String email, String firstName, String lastName, LocalDate birthDate,
@@ -200,9 +748,18 @@ public class UserServiceImplTest {
         return user;
     }
 
+    private DataIntegrityViolationException createViolation(String sqlState, int errorCode,
+                                                            String constraintName) {
+        return new DataIntegrityViolationException("Integrity violation",
+                new ConstraintViolationException("Integrity violation",
+                        new SQLException("Integrity violation", sqlState, errorCode),
+                        constraintName));
+    }
+
     private UserResponseDto createUserResponseDto(User user) {
         return new UserResponseDto(user.getId(), user.getEmail(), user.getFirstName(),
-                user.getLastName(), user.getBirthDate(), user.getAddress(), user.getPhoneNumber());
+                user.getLastName(), user.getBirthDate(), user.getAddress(), user.getPhoneNumber(),
+                user.getVersion());
     }
 
     private UserRegisterRequestDto createUserRegisterRequestDto(
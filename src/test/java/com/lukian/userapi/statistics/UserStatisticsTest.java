@@ -0,0 +1,118 @@
+package com.lukian.userapi.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.lukian.userapi.dto.UserStatisticsDto;
+import com.lukian.userapi.repository.UserRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class UserStatisticsTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    private UserRepository userRepository;
+
+    private UserStatistics userStatistics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userStatistics = new UserStatistics(userRepository);
+        ReflectionTestUtils.setField(userStatistics, "ageBucketWidth", 10);
+        when(userRepository.countActiveGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(LocalDate.of(1990, 1, 1), 2),
+                new BirthDateCount(LocalDate.of(1990, 12, 31), 1),
+                new BirthDateCount(LocalDate.of(2004, 6, 16), 1)));
+        when(userRepository.countDeleted()).thenReturn(5L);
+        userStatistics.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getStatistics_AfterReconcile_ShouldCountByBirthYearAndAgeBucket() {
+        // When
+        UserStatisticsDto statistics = userStatistics.getStatistics(TODAY);
+
+        // Then
+        assertEquals(new UserStatisticsDto(4, 5,
+                Map.of(1990, 3L, 2004, 1L),
+                Map.of("10-19", 1L, "30-39", 3L)), statistics);
+    }
+
+    @Test
+    void changes_WithoutTransaction_ShouldUpdateCountersRightAway() {
+        // When
+        userStatistics.userAdded(LocalDate.of(2000, 3, 3));
+        userStatistics.birthDateChanged(LocalDate.of(2004, 6, 16), LocalDate.of(2000, 3, 3));
+        userStatistics.userDeleted();
+
+        // Then
+        assertEquals(new UserStatisticsDto(4, 6,
+                Map.of(1990, 3L, 2000, 2L),
+                Map.of("20-29", 2L, "30-39", 3L)), userStatistics.getStatistics(TODAY));
+    }
+
+    @Test
+    void reconcile_AfterDelete_ShouldTakeBirthDateOfDeletedUserFromDb() {
+        // Given
+        userStatistics.userDeleted();
+        when(userRepository.countActiveGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(LocalDate.of(1990, 1, 1), 2),
+                new BirthDateCount(LocalDate.of(2004, 6, 16), 1)));
+        when(userRepository.countDeleted()).thenReturn(6L);
+
+        // When
+        userStatistics.reconcile();
+
+        // Then
+        assertEquals(new UserStatisticsDto(3, 6,
+                Map.of(1990, 2L, 2004, 1L),
+                Map.of("10-19", 1L, "30-39", 2L)), userStatistics.getStatistics(TODAY));
+    }
+
+    @Test
+    void userAdded_InsideTransaction_ShouldCountUserOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        userStatistics.userAdded(LocalDate.of(2000, 3, 3));
+
+        // Then
+        assertEquals(4, userStatistics.getStatistics(TODAY).active());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        assertEquals(5, userStatistics.getStatistics(TODAY).active());
+    }
+
+    @Test
+    void reconcile_WithDriftedCounters_ShouldReplaceThemWithCountsFromDb() {
+        // Given
+        userStatistics.userAdded(LocalDate.of(2000, 3, 3));
+        when(userRepository.countActiveGroupedByBirthDate()).thenReturn(List.of(
+                new BirthDateCount(LocalDate.of(1990, 1, 1), 1)));
+        when(userRepository.countDeleted()).thenReturn(7L);
+
+        // When
+        userStatistics.reconcile();
+
+        // Then
+        assertEquals(new UserStatisticsDto(1, 7, Map.of(1990, 1L), Map.of("30-39", 1L)),
+                userStatistics.getStatistics(TODAY));
+    }
+}